@@ -0,0 +1,237 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.cloud.language.v1.Sentiment;
+
+/**
+ * {@link SentimentAnalyzer} that remembers results by a hash of the
+ * normalized text, so repeated comments like "Nice!" skip the remote call.
+ * Recent results are kept in a bounded in-memory LRU map. When given a
+ * {@link DatastoreService}, every result is also stored under the
+ * "SentimentCache" kind so it survives instance restarts.
+ *
+ * <p>The hit rate is logged every {@link #LOG_INTERVAL} texts.
+ */
+public final class CachingSentimentAnalyzer implements SentimentAnalyzer {
+  private static final Logger logger = Logger.getLogger(CachingSentimentAnalyzer.class.getName());
+
+  private static final String KIND = "SentimentCache";
+  private static final long LOG_INTERVAL = 1000;
+
+  private final SentimentAnalyzer delegate;
+  private final DatastoreService datastore;
+  private final Map<String, Sentiment> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /** Creates a memory-only cache holding up to {@code capacity} results. */
+  public CachingSentimentAnalyzer(SentimentAnalyzer delegate, int capacity) {
+    this(delegate, capacity, null);
+  }
+
+  /**
+   * Creates a cache holding up to {@code capacity} results in memory, backed
+   * by {@code datastore}.
+   */
+  public CachingSentimentAnalyzer(
+      SentimentAnalyzer delegate, int capacity, DatastoreService datastore) {
+    this.delegate = delegate;
+    this.datastore = datastore;
+    this.entries = new LinkedHashMap<String, Sentiment>(16, 0.75f, /* accessOrder */ true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Sentiment> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  @Override
+  public Sentiment analyze(String text) throws IOException {
+    List<String> texts = new ArrayList<>();
+    texts.add(text);
+
+    return analyzeAll(texts).get(0);
+  }
+
+  /**
+   * Answers what it can from memory, then from Datastore, and sends only the
+   * remaining distinct texts to the delegate in a single batch.
+   */
+  @Override
+  public List<Sentiment> analyzeAll(List<String> texts) throws IOException {
+    List<String> hashes = new ArrayList<>();
+    Map<String, Sentiment> found = new LinkedHashMap<>();
+    Map<String, String> missing = new LinkedHashMap<>();
+
+    for (String text : texts) {
+      String hash = hash(text);
+      hashes.add(hash);
+
+      Sentiment sentiment = getFromMemory(hash);
+      if (sentiment != null) {
+        found.put(hash, sentiment);
+      } else {
+        missing.put(hash, text);
+      }
+    }
+
+    if (!missing.isEmpty() && datastore != null) {
+      Map<String, Sentiment> stored = getFromDatastore(missing.keySet());
+      stored.forEach(this::putInMemory);
+      found.putAll(stored);
+      missing.keySet().removeAll(stored.keySet());
+    }
+
+    if (!missing.isEmpty()) {
+      List<Sentiment> analyzed = delegate.analyzeAll(new ArrayList<>(missing.values()));
+
+      Map<String, Sentiment> results = new LinkedHashMap<>();
+      int i = 0;
+      for (String hash : missing.keySet()) {
+        results.put(hash, analyzed.get(i++));
+      }
+
+      results.forEach(this::putInMemory);
+      if (datastore != null) {
+        putInDatastore(results);
+      }
+      found.putAll(results);
+    }
+
+    List<Sentiment> sentiments = new ArrayList<>();
+    for (String hash : hashes) {
+      sentiments.add(found.get(hash));
+    }
+
+    long hitCount = texts.size() - missing.size();
+    long before = hits.get() + misses.get();
+    hits.addAndGet(hitCount);
+    misses.addAndGet(texts.size() - hitCount);
+    if (before / LOG_INTERVAL != (before + texts.size()) / LOG_INTERVAL) {
+      logger.info(String.format(Locale.ROOT, "Sentiment cache: %.1f%% of %d texts hit",
+          100 * getHitRate(), hits.get() + misses.get()));
+    }
+
+    return sentiments;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the fraction of texts answered without calling the delegate, or
+   * 0 if nothing was analyzed yet.
+   */
+  public double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  private synchronized Sentiment getFromMemory(String hash) {
+    return entries.get(hash);
+  }
+
+  private synchronized void putInMemory(String hash, Sentiment sentiment) {
+    entries.put(hash, sentiment);
+  }
+
+  private Map<String, Sentiment> getFromDatastore(Iterable<String> hashes) {
+    List<Key> keys = new ArrayList<>();
+    for (String hash : hashes) {
+      keys.add(KeyFactory.createKey(KIND, hash));
+    }
+
+    Map<String, Sentiment> stored = new LinkedHashMap<>();
+    for (Entity entity : datastore.get(keys).values()) {
+      Sentiment sentiment = Sentiment.newBuilder()
+          .setScore(((Double) entity.getProperty("score")).floatValue())
+          .setMagnitude(((Double) entity.getProperty("magnitude")).floatValue())
+          .build();
+
+      stored.put(entity.getKey().getName(), sentiment);
+    }
+
+    return stored;
+  }
+
+  private void putInDatastore(Map<String, Sentiment> results) {
+    List<Entity> entities = new ArrayList<>();
+    results.forEach((hash, sentiment) -> {
+      Entity entity = new Entity(KIND, hash);
+      entity.setUnindexedProperty("score", (double) sentiment.getScore());
+      entity.setUnindexedProperty("magnitude", (double) sentiment.getMagnitude());
+
+      entities.add(entity);
+    });
+
+    datastore.put(entities);
+  }
+
+  /**
+   * Hashes {@code text} after Unicode normalization, lower-casing, and
+   * collapsing whitespace, so trivially different copies share an entry.
+   */
+  static String hash(String text) {
+    String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC)
+        .toLowerCase(Locale.ROOT)
+        .trim()
+        .replaceAll("\\s+", " ");
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+    }
+
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest(normalized.getBytes(StandardCharsets.UTF_8))) {
+      hex.append(String.format("%02x", b));
+    }
+
+    return hex.toString();
+  }
+}
@@ -0,0 +1,83 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.google.cloud.language.v1.AnalyzeSentimentRequest;
+import com.google.cloud.language.v1.AnalyzeSentimentResponse;
+import com.google.cloud.language.v1.Document;
+import com.google.cloud.language.v1.LanguageServiceClient;
+import com.google.cloud.language.v1.Sentiment;
+
+/**
+ * {@link SentimentAnalyzer} backed by the Cloud Natural Language API. It keeps
+ * a single long-lived client, whose channel is thread-safe and multiplexes
+ * concurrent calls, instead of paying channel setup on every comment.
+ */
+public final class CloudSentimentAnalyzer implements SentimentAnalyzer {
+  private final LanguageServiceClient languageService;
+
+  public CloudSentimentAnalyzer() throws IOException {
+    this(LanguageServiceClient.create());
+  }
+
+  public CloudSentimentAnalyzer(LanguageServiceClient languageService) {
+    this.languageService = languageService;
+  }
+
+  @Override
+  public Sentiment analyze(String text) {
+    return languageService.analyzeSentiment(buildRequest(text)).getDocumentSentiment();
+  }
+
+  /** Sends every request before waiting on any, so a batch takes about as long as its slowest call. */
+  @Override
+  public List<Sentiment> analyzeAll(List<String> texts) throws IOException {
+    List<Future<AnalyzeSentimentResponse>> responses = new ArrayList<>();
+    for (String text : texts) {
+      responses.add(languageService.analyzeSentimentCallable().futureCall(buildRequest(text)));
+    }
+
+    List<Sentiment> sentiments = new ArrayList<>();
+    try {
+      for (Future<AnalyzeSentimentResponse> response : responses) {
+        sentiments.add(response.get().getDocumentSentiment());
+      }
+    } catch (ExecutionException e) {
+      throw new IOException("Sentiment analysis failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for sentiment analysis", e);
+    }
+
+    return sentiments;
+  }
+
+  private static AnalyzeSentimentRequest buildRequest(String text) {
+    Document doc = Document.newBuilder().setContent(text).setType(Document.Type.PLAIN_TEXT).build();
+
+    return AnalyzeSentimentRequest.newBuilder().setDocument(doc).build();
+  }
+
+  @Override
+  public void close() {
+    languageService.close();
+  }
+}
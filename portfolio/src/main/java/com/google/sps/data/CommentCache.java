@@ -0,0 +1,149 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+/**
+ * Read-through cache of serialized comment pages, stored as UTF-8 bytes so a
+ * hit is written to the response as is. It lives in Memcache so every
+ * instance sees the same entries, and an invalidation from one servlet is
+ * visible to the others right away.
+ *
+ * <p>Entries are keyed by a generation number. Invalidating bumps the
+ * generation, which orphans every cached page at once; the orphans simply
+ * expire. The generation is seeded from the clock, so if Memcache evicts it
+ * the new value won't collide with keys that are still cached.
+ *
+ * <p>Comment queries are eventually consistent, so a page loaded right after
+ * a write, such as the one the poster is redirected to, may not show it yet.
+ * Pages loaded within {@link #CONSISTENCY_WINDOW_MILLIS} of the last
+ * invalidation are only cached until that window ends.
+ *
+ * <p>Each instance counts its hits and misses and the time spent on each, and
+ * logs them every {@link #LOG_INTERVAL} lookups.
+ */
+public final class CommentCache {
+  private static final Logger logger = Logger.getLogger(CommentCache.class.getName());
+
+  private static final String NAMESPACE = "comments";
+  private static final String GENERATION_KEY = "generation";
+  private static final String INVALIDATED_AT_KEY = "invalidatedAt";
+
+  /** Safety net in case a write ever skips {@link #invalidate()}. */
+  private static final int TTL_SECONDS = 5 * 60;
+
+  /** How long a query may keep missing a write after it is made. */
+  private static final long CONSISTENCY_WINDOW_MILLIS = 5000;
+
+  private static final long LOG_INTERVAL = 1000;
+
+  private final MemcacheService memcache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong hitNanos = new AtomicLong();
+  private final AtomicLong missNanos = new AtomicLong();
+
+  public CommentCache() {
+    this(MemcacheServiceFactory.getMemcacheService(NAMESPACE));
+  }
+
+  public CommentCache(MemcacheService memcache) {
+    this.memcache = memcache;
+  }
+
+  /**
+   * Returns the cached UTF-8 JSON for the page identified by {@code pageKey},
+   * calling {@code loader} and storing its result if there is no entry yet.
+   * If Memcache can't return the generation, the page is loaded uncached,
+   * since there is no telling which entries are current.
+   */
+  public byte[] get(String pageKey, Supplier<byte[]> loader) {
+    long start = System.nanoTime();
+    Long generation = memcache.increment(GENERATION_KEY, 0, System.currentTimeMillis());
+
+    byte[] json = null;
+    String key = generation + ":" + pageKey;
+    if (generation != null) {
+      json = (byte[]) memcache.get(key);
+    }
+
+    if (json != null) {
+      record(hits, hitNanos, start);
+      return json;
+    }
+
+    json = loader.get();
+    if (generation != null) {
+      memcache.put(key, json, expiration());
+    }
+    record(misses, missNanos, start);
+
+    return json;
+  }
+
+  /** Drops every cached page. Must be called after every write to the "Comment" kind. */
+  public void invalidate() {
+    // Stored first, so a reader that sees the new generation also sees it.
+    memcache.put(INVALIDATED_AT_KEY, System.currentTimeMillis());
+    memcache.increment(GENERATION_KEY, 1, System.currentTimeMillis());
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /** Expires a page when the last write is surely visible, or after the TTL if it already is. */
+  private Expiration expiration() {
+    Long invalidatedAt = (Long) memcache.get(INVALIDATED_AT_KEY);
+    long untilConsistent = invalidatedAt == null
+        ? 0
+        : invalidatedAt + CONSISTENCY_WINDOW_MILLIS - System.currentTimeMillis();
+
+    return untilConsistent > 0
+        ? Expiration.byDeltaMillis((int) untilConsistent)
+        : Expiration.byDeltaSeconds(TTL_SECONDS);
+  }
+
+  private void record(AtomicLong count, AtomicLong nanos, long start) {
+    count.incrementAndGet();
+    nanos.addAndGet(System.nanoTime() - start);
+
+    long hitCount = hits.get();
+    long missCount = misses.get();
+    if ((hitCount + missCount) % LOG_INTERVAL == 0) {
+      logger.info(String.format(Locale.ROOT,
+          "Comment cache: %d hits, %d misses, %.1f%% hit rate, %.2f ms per hit, %.2f ms per miss",
+          hitCount, missCount, 100.0 * hitCount / (hitCount + missCount),
+          averageMillis(hitNanos, hitCount), averageMillis(missNanos, missCount)));
+    }
+  }
+
+  private static double averageMillis(AtomicLong nanos, long count) {
+    return count == 0 ? 0 : nanos.get() / 1e6 / count;
+  }
+}
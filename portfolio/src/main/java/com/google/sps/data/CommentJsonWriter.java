@@ -0,0 +1,101 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.PropertyProjection;
+import com.google.appengine.api.datastore.Query;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Renders pages of comments as JSON straight from projected "Comment"
+ * entities, without building intermediate objects:
+ *
+ * <pre>
+ * {"comments": [{"content": "...", "timestamp": 0,
+ *                "sentimentScore": 0.0, "sentimentMagnitude": 0.0}],
+ *  "cursor": "..."}
+ * </pre>
+ *
+ * <p>The sentiment fields are left out until a comment has been scored in the
+ * background, and the cursor is left out on the last page.
+ */
+public final class CommentJsonWriter {
+  private CommentJsonWriter() {}
+
+  /**
+   * Restricts {@code query} to the properties rendered here. Projected
+   * properties are read from the index, so comment content must stay short
+   * enough to be indexed.
+   */
+  public static Query project(Query query) {
+    return query
+        .addProjection(new PropertyProjection("content", String.class))
+        .addProjection(new PropertyProjection("timestamp", Long.class))
+        .addProjection(new PropertyProjection("sentimentScore", Double.class))
+        .addProjection(new PropertyProjection("sentimentMagnitude", Double.class));
+  }
+
+  /**
+   * Returns the UTF-8 encoded JSON for a page holding {@code comments}. The
+   * JSON is encoded as it is written, so the page is never held as a
+   * {@code String} as well as bytes.
+   */
+  public static byte[] writePage(Iterable<Entity> comments, String nextCursor) {
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+    try (JsonWriter writer =
+        new JsonWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8))) {
+      writer.beginObject();
+
+      writer.name("comments").beginArray();
+      for (Entity comment : comments) {
+        writeComment(writer, comment);
+      }
+      writer.endArray();
+
+      if (nextCursor != null) {
+        writer.name("cursor").value(nextCursor);
+      }
+
+      writer.endObject();
+    } catch (IOException e) {
+      // Only the in-memory stream is written to, which never fails.
+      throw new UncheckedIOException(e);
+    }
+
+    return json.toByteArray();
+  }
+
+  private static void writeComment(JsonWriter writer, Entity comment) throws IOException {
+    Double sentimentScore = (Double) comment.getProperty("sentimentScore");
+    Double sentimentMagnitude = (Double) comment.getProperty("sentimentMagnitude");
+
+    writer.beginObject();
+    writer.name("content").value((String) comment.getProperty("content"));
+    writer.name("timestamp").value((long) comment.getProperty("timestamp"));
+    if (sentimentScore != null) {
+      writer.name("sentimentScore").value(sentimentScore);
+      writer.name("sentimentMagnitude").value(sentimentMagnitude);
+    }
+    writer.endObject();
+  }
+}
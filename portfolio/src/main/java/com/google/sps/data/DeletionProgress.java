@@ -0,0 +1,32 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * Result of one bulk-deletion request. If {@code done} is false the request
+ * ran out of time, and {@code cursor} should be sent back to carry on from
+ * where it stopped.
+ */
+public final class DeletionProgress {
+    private final long deleted;
+    private final String cursor;
+    private final boolean done;
+
+    public DeletionProgress(long deleted, String cursor, boolean done) {
+        this.deleted = deleted;
+        this.cursor = cursor;
+        this.done = done;
+    }
+}
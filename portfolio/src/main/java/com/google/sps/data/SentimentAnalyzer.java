@@ -0,0 +1,47 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.cloud.language.v1.Sentiment;
+
+/**
+ * Scores the sentiment of comment text. Implementations are shared between
+ * requests, so they must be thread-safe.
+ */
+public interface SentimentAnalyzer extends AutoCloseable {
+  /** Returns the document-level sentiment of {@code text}. */
+  Sentiment analyze(String text) throws IOException;
+
+  /**
+   * Returns the sentiment of each of {@code texts}, in the same order. The
+   * default implementation scores them one at a time.
+   */
+  default List<Sentiment> analyzeAll(List<String> texts) throws IOException {
+    List<Sentiment> sentiments = new ArrayList<>();
+    for (String text : texts) {
+      sentiments.add(analyze(text));
+    }
+
+    return sentiments;
+  }
+
+  /** Releases any connection held by the analyzer. */
+  @Override
+  void close();
+}
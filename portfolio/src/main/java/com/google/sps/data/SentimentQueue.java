@@ -0,0 +1,100 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.appengine.api.taskqueue.TaskOptions;
+
+/**
+ * Queue of comments waiting for a sentiment score. Each comment key is
+ * stored as a task on a pull queue, and a push task on the "sentiment" queue
+ * wakes up the worker to lease and score them in batches. Both queues are
+ * configured in WEB-INF/queue.xml, which also sets the retry backoff.
+ */
+public final class SentimentQueue {
+  public static final String WORKER_URL = "/sentiment-worker";
+
+  private static final String PULL_QUEUE_NAME = "sentiment-pull";
+  private static final String PUSH_QUEUE_NAME = "sentiment";
+
+  /** Comments posted within the same window share one wake-up, and so one batch. */
+  private static final long BATCH_WINDOW_MILLIS = 2000;
+
+  /** How long a leased batch stays hidden from other workers before it is retried. */
+  private static final long LEASE_SECONDS = 60;
+
+  private final Queue pullQueue;
+  private final Queue pushQueue;
+
+  public SentimentQueue() {
+    this(QueueFactory.getQueue(PULL_QUEUE_NAME), QueueFactory.getQueue(PUSH_QUEUE_NAME));
+  }
+
+  public SentimentQueue(Queue pullQueue, Queue pushQueue) {
+    this.pullQueue = pullQueue;
+    this.pushQueue = pushQueue;
+  }
+
+  /** Schedules the comment with the given key to be scored. */
+  public void enqueue(Key commentKey) {
+    byte[] payload = KeyFactory.keyToString(commentKey).getBytes(StandardCharsets.UTF_8);
+    pullQueue.add(TaskOptions.Builder.withMethod(TaskOptions.Method.PULL).payload(payload));
+
+    // Named after the current window, so only the first comment in it schedules a wake-up.
+    // The countdown lets the rest of the window's comments land before the worker runs.
+    long window = System.currentTimeMillis() / BATCH_WINDOW_MILLIS;
+    try {
+      pushQueue.add(TaskOptions.Builder.withUrl(WORKER_URL)
+          .taskName("score-" + window)
+          .countdownMillis(BATCH_WINDOW_MILLIS));
+    } catch (TaskAlreadyExistsException e) {
+      // Another comment in this window already scheduled the worker.
+    }
+  }
+
+  /** Leases up to {@code count} pending comments. They must be passed to {@link #complete} once scored. */
+  public List<TaskHandle> lease(int count) {
+    return pullQueue.leaseTasks(LEASE_SECONDS, TimeUnit.SECONDS, count);
+  }
+
+  /** Returns the key of the comment a leased task refers to. */
+  public static Key getCommentKey(TaskHandle task) {
+    return KeyFactory.stringToKey(new String(task.getPayload(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Ends the leases of tasks that could not be finished, so the next lease
+   * picks them up right away instead of once the lease runs out.
+   */
+  public void release(List<TaskHandle> tasks) {
+    for (TaskHandle task : tasks) {
+      pullQueue.modifyTaskLease(task, 0, TimeUnit.SECONDS);
+    }
+  }
+
+  /** Removes finished tasks from the queue so they are not leased again. */
+  public void complete(List<TaskHandle> tasks) {
+    pullQueue.deleteTask(tasks);
+  }
+}
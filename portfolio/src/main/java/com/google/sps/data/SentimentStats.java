@@ -0,0 +1,188 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.Transaction;
+
+/**
+ * Running aggregates over the sentiment of every scored comment: count, sums
+ * for the mean and standard deviation, and a histogram of scores. They are
+ * kept in a single entity that is updated in the same transaction as the
+ * comments it counts, so reading them never needs a scan. Deleting comments
+ * doesn't update them; the deletion {@linkplain #recount recounts} them once
+ * it is done instead.
+ */
+public final class SentimentStats {
+  /**
+   * Set on a comment in the same transaction that adds it to the aggregates,
+   * so a recount only includes comments that were added.
+   */
+  public static final String COUNTED_PROPERTY = "sentimentCounted";
+
+  /** Number of equal-width histogram buckets covering scores from -1 to 1. */
+  public static final int BUCKET_COUNT = 10;
+
+  private static final Key KEY = KeyFactory.createKey("SentimentStats", "comments");
+
+  private static final int RECOUNT_BATCH_SIZE = 500;
+  private static final int MAX_RECOUNT_ATTEMPTS = 3;
+
+  private long count;
+  private double scoreSum;
+  private double scoreSumOfSquares;
+  private double magnitudeSum;
+  private final long[] histogram = new long[BUCKET_COUNT];
+
+  /**
+   * Reads the stored aggregates, or empty ones if nothing was scored yet.
+   * Pass a null {@code txn} to read outside a transaction.
+   */
+  public static SentimentStats get(DatastoreService datastore, Transaction txn) {
+    SentimentStats stats = new SentimentStats();
+
+    Entity entity;
+    try {
+      entity = datastore.get(txn, KEY);
+    } catch (EntityNotFoundException e) {
+      return stats;
+    }
+
+    stats.count = (long) entity.getProperty("count");
+    stats.scoreSum = (double) entity.getProperty("scoreSum");
+    stats.scoreSumOfSquares = (double) entity.getProperty("scoreSumOfSquares");
+    stats.magnitudeSum = (double) entity.getProperty("magnitudeSum");
+
+    @SuppressWarnings("unchecked")
+    List<Long> histogram = (List<Long>) entity.getProperty("histogram");
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      stats.histogram[i] = histogram.get(i);
+    }
+
+    return stats;
+  }
+
+  /** Writes the aggregates as part of {@code txn}. */
+  public void put(DatastoreService datastore, Transaction txn) {
+    List<Long> histogramValues = new ArrayList<>();
+    for (long bucket : histogram) {
+      histogramValues.add(bucket);
+    }
+
+    Entity entity = new Entity(KEY);
+    entity.setUnindexedProperty("count", count);
+    entity.setUnindexedProperty("scoreSum", scoreSum);
+    entity.setUnindexedProperty("scoreSumOfSquares", scoreSumOfSquares);
+    entity.setUnindexedProperty("magnitudeSum", magnitudeSum);
+    entity.setUnindexedProperty("histogram", histogramValues);
+
+    datastore.put(txn, entity);
+  }
+
+  /** Counts one more scored comment. */
+  public void add(double score, double magnitude) {
+    count++;
+    scoreSum += score;
+    scoreSumOfSquares += score * score;
+    magnitudeSum += magnitude;
+    histogram[bucketOf(score)]++;
+  }
+
+  /**
+   * Rebuilds the aggregates from the counted comments that still exist, e.g.
+   * after comments were deleted without updating them. The comments are read
+   * inside a transaction on the aggregates, so a comment the worker counts in
+   * the meantime makes the commit fail and the recount start over. A comment
+   * counted just before the recount may still be missed while the query's
+   * index catches up.
+   */
+  public static void recount(DatastoreService datastore) {
+    for (int attempt = 1; ; attempt++) {
+      Transaction txn = datastore.beginTransaction();
+      try {
+        // Read first, so the commit fails if the worker writes the aggregates meanwhile.
+        get(datastore, txn);
+
+        SentimentStats stats = new SentimentStats();
+        Query query = new Query("Comment")
+            .setFilter(new FilterPredicate(COUNTED_PROPERTY, FilterOperator.EQUAL, true))
+            .setKeysOnly();
+        List<Key> keys = new ArrayList<>();
+        for (Entity key : datastore.prepare(query).asIterable(
+            FetchOptions.Builder.withChunkSize(RECOUNT_BATCH_SIZE))) {
+          keys.add(key.getKey());
+          if (keys.size() == RECOUNT_BATCH_SIZE) {
+            stats.addComments(datastore.get(keys).values());
+            keys.clear();
+          }
+        }
+        stats.addComments(datastore.get(keys).values());
+
+        stats.put(datastore, txn);
+        txn.commit();
+        return;
+      } catch (ConcurrentModificationException e) {
+        if (attempt == MAX_RECOUNT_ATTEMPTS) {
+          throw e;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  /** Adds comments read by key, which unlike the query only returns ones that still exist. */
+  private void addComments(Iterable<Entity> comments) {
+    for (Entity comment : comments) {
+      if (Boolean.TRUE.equals(comment.getProperty(COUNTED_PROPERTY))) {
+        add((Double) comment.getProperty("sentimentScore"),
+            (Double) comment.getProperty("sentimentMagnitude"));
+      }
+    }
+  }
+
+  /** Returns the mean, standard deviation, and histogram derived from the aggregates. */
+  public SentimentSummary toSummary() {
+    if (count <= 0) {
+      return new SentimentSummary(0, 0, 0, 0, histogram.clone());
+    }
+
+    double meanScore = scoreSum / count;
+    double variance = Math.max(0, scoreSumOfSquares / count - meanScore * meanScore);
+
+    return new SentimentSummary(
+        count, meanScore, Math.sqrt(variance), magnitudeSum / count, histogram.clone());
+  }
+
+  private static int bucketOf(double score) {
+    int bucket = (int) ((score + 1) / 2 * BUCKET_COUNT);
+
+    return Math.max(0, Math.min(BUCKET_COUNT - 1, bucket));
+  }
+}
@@ -0,0 +1,36 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * Overall mood of the comments. {@code histogram} counts scores in
+ * equal-width buckets from -1 to 1.
+ */
+public final class SentimentSummary {
+    private final long count;
+    private final double meanScore;
+    private final double scoreStandardDeviation;
+    private final double meanMagnitude;
+    private final long[] histogram;
+
+    public SentimentSummary(long count, double meanScore, double scoreStandardDeviation,
+        double meanMagnitude, long[] histogram) {
+        this.count = count;
+        this.meanScore = meanScore;
+        this.scoreStandardDeviation = scoreStandardDeviation;
+        this.meanMagnitude = meanMagnitude;
+        this.histogram = histogram;
+    }
+}
@@ -15,7 +15,6 @@
 package com.google.sps.servlets;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -24,68 +23,132 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
 import com.google.appengine.api.datastore.Query.SortDirection;
-import com.google.cloud.language.v1.Document;
-import com.google.cloud.language.v1.LanguageServiceClient;
-import com.google.cloud.language.v1.Sentiment;
-import com.google.gson.Gson;
-import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.CommentJsonWriter;
+import com.google.sps.data.SentimentQueue;
 
 @WebServlet("/data")
 public class DataServlet extends HttpServlet {
+  private static final int DEFAULT_PAGE_SIZE = 10;
+  private static final int MAX_PAGE_SIZE = 50;
+
   private DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+  private CommentCache cache = new CommentCache();
+  private SentimentQueue sentimentQueue = new SentimentQueue();
 
+  /**
+   * Returns one page of comments, newest first. Accepts an optional {@code limit}
+   * and the opaque {@code cursor} returned with the previous page.
+   */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Query query = new Query("Comment").addSort("timestamp", SortDirection.DESCENDING);
+    int limit;
+    Cursor cursor;
+
+    try {
+      limit = parseLimit(request.getParameter("limit"));
+      cursor = parseCursor(request.getParameter("cursor"));
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    String pageKey = limit + ":" + (cursor == null ? "" : cursor.toWebSafeString());
+    byte[] json = cache.get(pageKey, () -> loadCommentPageJson(limit, cursor));
+
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    response.setContentLength(json.length);
+    response.getOutputStream().write(json);
+  }
+
+  private byte[] loadCommentPageJson(int limit, Cursor cursor) {
+    Query query = CommentJsonWriter.project(new Query("Comment"))
+        .addSort("timestamp", SortDirection.DESCENDING);
     PreparedQuery results = datastore.prepare(query);
 
-    ArrayList<Comment> comments = new ArrayList<>();
-    for (Entity entity : results.asIterable()) {
-      Comment comment = Comment.fromEntity(entity);
-      comments.add(comment);
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(limit);
+    if (cursor != null) {
+      fetchOptions.startCursor(cursor);
     }
+    QueryResultList<Entity> entities = results.asQueryResultList(fetchOptions);
 
-    Gson gson = new Gson();
-    String json = gson.toJson(comments);
+    // A short page means the query is exhausted, so there's no next page to point to.
+    String nextCursor = entities.size() < limit ? null : entities.getCursor().toWebSafeString();
 
-    response.setContentType("application/json");
-    response.getWriter().print(json);
+    return CommentJsonWriter.writePage(entities, nextCursor);
+  }
+
+  private static int parseLimit(String limitParameter) {
+    if (limitParameter == null) {
+      return DEFAULT_PAGE_SIZE;
+    }
+
+    int limit;
+    try {
+      limit = Integer.parseInt(limitParameter);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("limit must be a number");
+    }
+
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    return limit;
   }
 
+  private static Cursor parseCursor(String cursorParameter) {
+    if (cursorParameter == null || cursorParameter.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return Cursor.fromWebSafeString(cursorParameter);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("cursor is not valid");
+    }
+  }
+
+  /**
+   * Stores the posted comment right away and queues it for sentiment scoring,
+   * so the response doesn't wait on the language service.
+   */
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String commentText = request.getParameter("comment");
+    if (commentText == null || commentText.trim().isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "comment must not be empty");
+      return;
+    }
+
     Entity commentEntity = createCommentEntity(commentText);
 
-    datastore.put(commentEntity);
+    Key commentKey = datastore.put(commentEntity);
+    sentimentQueue.enqueue(commentKey);
+    cache.invalidate();
 
     response.sendRedirect("/");
   }
 
-  private Entity createCommentEntity(String commentText) throws IOException {
+  private Entity createCommentEntity(String commentText) {
     Entity commentEntity = new Entity("Comment");
     long timestamp = System.currentTimeMillis();
-    Sentiment sentiment = getCommentSentiment(commentText);
 
     commentEntity.setProperty("content", commentText);
     commentEntity.setProperty("timestamp", timestamp);
-    commentEntity.setProperty("sentimentScore", sentiment.getScore());
-    commentEntity.setProperty("sentimentMagnitude", sentiment.getMagnitude());
+    // Back-filled by SentimentWorkerServlet.
+    commentEntity.setProperty("sentimentScore", null);
+    commentEntity.setProperty("sentimentMagnitude", null);
 
     return commentEntity;
   }
-
-  private Sentiment getCommentSentiment(String commentText) throws IOException {
-    Document doc = Document.newBuilder().setContent(commentText).setType(Document.Type.PLAIN_TEXT).build();
-    
-    LanguageServiceClient languageService = LanguageServiceClient.create();
-    Sentiment sentiment = languageService.analyzeSentiment(doc).getDocumentSentiment();
-    languageService.close();
-
-    return sentiment;
-  }
 }
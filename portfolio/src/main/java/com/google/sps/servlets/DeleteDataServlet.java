@@ -15,14 +15,18 @@
 package com.google.sps.servlets;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
@@ -30,20 +34,113 @@ import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.gson.Gson;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.DeletionProgress;
+import com.google.sps.data.SentimentStats;
 
-/** Servlet that returns some example content. TODO: modify this file to handle comments data */
+/**
+ * Deletes every comment. Keys are read a page at a time and each page is
+ * deleted in parallel batches, so memory use stays flat no matter how many
+ * comments there are. When the time budget runs out, the response carries a
+ * cursor that resumes the deletion on the next request.
+ *
+ * <p>The deletes don't touch the {@link SentimentStats} aggregates, which
+ * would put every batch in a transaction on that one entity, contending with
+ * each other and with the sentiment worker. The aggregates are recounted
+ * from the comments left once the last page is deleted instead. Until then,
+ * and if a deletion is abandoned part way, they still count the comments
+ * already deleted.
+ */
 @WebServlet("/delete-data")
 public class DeleteDataServlet extends HttpServlet {
-  private DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+  private static final int PAGE_SIZE = 500;
+  private static final int DELETE_BATCH_SIZE = 100;
+
+  /** Stops well before the request deadline, leaving room for the page in flight. */
+  private static final long TIME_BUDGET_MILLIS = 20_000;
+
+  private AsyncDatastoreService datastore = DatastoreServiceFactory.getAsyncDatastoreService();
+  private DatastoreService syncDatastore = DatastoreServiceFactory.getDatastoreService();
+  private CommentCache cache = new CommentCache();
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String cursorParameter = request.getParameter("cursor");
+    Cursor cursor = null;
+    try {
+      if (cursorParameter != null && !cursorParameter.isEmpty()) {
+        cursor = Cursor.fromWebSafeString(cursorParameter);
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "cursor is not valid");
+      return;
+    }
+
+    long deadline = System.currentTimeMillis() + TIME_BUDGET_MILLIS;
+    long deleted = 0;
+    boolean done = false;
+
     Query query = new Query("Comment").setKeysOnly();
     PreparedQuery results = datastore.prepare(query);
 
-    List<Entity> entities = results.asList(FetchOptions.Builder.withDefaults());
-    List<Key> keys = entities.stream().map(entity -> entity.getKey()).collect(Collectors.toList());
+    try {
+      while (!done && System.currentTimeMillis() < deadline) {
+        FetchOptions fetchOptions = FetchOptions.Builder.withLimit(PAGE_SIZE).chunkSize(PAGE_SIZE);
+        if (cursor != null) {
+          fetchOptions.startCursor(cursor);
+        }
+        QueryResultList<Entity> page = results.asQueryResultList(fetchOptions);
+
+        deletePage(page);
+
+        deleted += page.size();
+        cursor = page.getCursor();
+        done = page.size() < PAGE_SIZE;
+      }
+    } finally {
+      cache.invalidate();
+    }
+
+    if (done) {
+      try {
+        SentimentStats.recount(syncDatastore);
+      } catch (RuntimeException e) {
+        // The comments are gone either way; the next deletion recounts again.
+        log("Could not recount the sentiment aggregates", e);
+      }
+    }
+
+    DeletionProgress progress = new DeletionProgress(deleted, done ? null : cursor.toWebSafeString(), done);
+    Gson gson = new Gson();
+
+    response.setContentType("application/json");
+    response.getWriter().print(gson.toJson(progress));
+  }
+
+  /** Deletes the given keys-only entities in concurrent batches, and waits for all of them. */
+  private void deletePage(List<Entity> page) throws IOException {
+    List<Future<Void>> deletions = new ArrayList<>();
+
+    for (int start = 0; start < page.size(); start += DELETE_BATCH_SIZE) {
+      List<Key> keys = new ArrayList<>();
+      for (Entity entity : page.subList(start, Math.min(start + DELETE_BATCH_SIZE, page.size()))) {
+        keys.add(entity.getKey());
+      }
+
+      deletions.add(datastore.delete(keys));
+    }
 
-    datastore.delete(keys);
+    try {
+      for (Future<Void> deletion : deletions) {
+        deletion.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IOException("Could not delete comments", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while deleting comments", e);
+    }
   }
 }
@@ -0,0 +1,238 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import com.google.appengine.api.taskqueue.TaskHandle;
+import com.google.cloud.language.v1.Sentiment;
+import com.google.sps.data.CachingSentimentAnalyzer;
+import com.google.sps.data.CloudSentimentAnalyzer;
+import com.google.sps.data.CommentCache;
+import com.google.sps.data.SentimentAnalyzer;
+import com.google.sps.data.SentimentQueue;
+import com.google.sps.data.SentimentStats;
+
+/**
+ * Task queue worker that scores pending comments in batches and back-fills
+ * their sentiment properties, together with the {@link SentimentStats}
+ * aggregates. If any comment fails, the request answers with an error
+ * status, so the task queue retries it with the backoff set in
+ * WEB-INF/queue.xml.
+ */
+@WebServlet(SentimentQueue.WORKER_URL)
+public class SentimentWorkerServlet extends HttpServlet {
+  /** Kept below the 25 entity groups a cross-group transaction may touch, leaving one for the stats. */
+  private static final int BATCH_SIZE = 20;
+  private static final int SENTIMENT_CACHE_CAPACITY = 10_000;
+
+  /** Leases a comment gets before it is dropped from the queue unscored. */
+  private static final int MAX_LEASES = 5;
+
+  /** Set by App Engine on task queue requests, and stripped from external ones. */
+  private static final String QUEUE_NAME_HEADER = "X-AppEngine-QueueName";
+
+  private DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+  private CommentCache cache = new CommentCache();
+  private SentimentQueue queue = new SentimentQueue();
+  private SentimentAnalyzer sentimentAnalyzer;
+
+  public SentimentWorkerServlet() {}
+
+  /** Uses the given analyzer instead of the Cloud one, e.g. a local fake in tests or benchmarks. */
+  SentimentWorkerServlet(SentimentAnalyzer sentimentAnalyzer) {
+    this.sentimentAnalyzer = sentimentAnalyzer;
+  }
+
+  @Override
+  public void init() throws ServletException {
+    if (sentimentAnalyzer != null) {
+      return;
+    }
+
+    try {
+      sentimentAnalyzer = new CachingSentimentAnalyzer(
+          new CloudSentimentAnalyzer(), SENTIMENT_CACHE_CAPACITY, datastore);
+    } catch (IOException e) {
+      throw new ServletException("Could not create the language service client", e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    sentimentAnalyzer.close();
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (request.getHeader(QUEUE_NAME_HEADER) == null) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    List<TaskHandle> unfinished = new ArrayList<>();
+    List<TaskHandle> tasks;
+    do {
+      tasks = queue.lease(BATCH_SIZE);
+      if (tasks.isEmpty()) {
+        break;
+      }
+
+      List<TaskHandle> finished = scoreBatch(tasks);
+      queue.complete(finished);
+      for (TaskHandle task : tasks) {
+        if (!finished.contains(task)) {
+          unfinished.add(task);
+        }
+      }
+    } while (tasks.size() == BATCH_SIZE);
+
+    if (!unfinished.isEmpty()) {
+      // The failed comments are only released now, so this request doesn't
+      // lease them again. The retried request, after the queue's backoff,
+      // finds them available.
+      queue.release(unfinished);
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+  }
+
+  /**
+   * Scores the comments of a leased batch and returns the tasks that are
+   * finished with: scored, deleted, empty, or given up on after
+   * {@link #MAX_LEASES} tries. If the batch call fails, each comment is
+   * scored on its own, so one comment the language service rejects doesn't
+   * hold back the rest.
+   */
+  private List<TaskHandle> scoreBatch(List<TaskHandle> tasks) {
+    Set<Key> finishedKeys = new HashSet<>();
+    List<TaskHandle> finished = new ArrayList<>();
+    List<Key> keys = new ArrayList<>();
+    for (TaskHandle task : tasks) {
+      Key key = SentimentQueue.getCommentKey(task);
+      if (task.getRetryCount() > MAX_LEASES) {
+        log("Giving up on scoring comment " + key + " after " + MAX_LEASES + " tries");
+        finished.add(task);
+      } else {
+        keys.add(key);
+      }
+    }
+
+    // Comments deleted since they were queued are simply missing from the result.
+    Map<Key, Entity> entities = datastore.get(keys);
+    finishedKeys.addAll(keys);
+    finishedKeys.removeAll(entities.keySet());
+
+    List<Key> commentKeys = new ArrayList<>();
+    List<String> texts = new ArrayList<>();
+    for (Entity comment : entities.values()) {
+      String content = (String) comment.getProperty("content");
+      if (content == null || content.trim().isEmpty()) {
+        // There is nothing to score.
+        finishedKeys.add(comment.getKey());
+      } else {
+        commentKeys.add(comment.getKey());
+        texts.add(content);
+      }
+    }
+
+    Map<Key, Sentiment> sentimentsByKey = new LinkedHashMap<>();
+    if (!texts.isEmpty()) {
+      try {
+        List<Sentiment> sentiments = sentimentAnalyzer.analyzeAll(texts);
+        for (int i = 0; i < texts.size(); i++) {
+          sentimentsByKey.put(commentKeys.get(i), sentiments.get(i));
+        }
+      } catch (IOException | RuntimeException e) {
+        log("Could not score a batch of " + texts.size() + " comments, scoring them one by one", e);
+        for (int i = 0; i < texts.size(); i++) {
+          try {
+            sentimentsByKey.put(commentKeys.get(i), sentimentAnalyzer.analyze(texts.get(i)));
+          } catch (IOException | RuntimeException commentError) {
+            log("Could not score comment " + commentKeys.get(i), commentError);
+          }
+        }
+      }
+    }
+
+    if (!sentimentsByKey.isEmpty()) {
+      saveSentiments(sentimentsByKey);
+      cache.invalidate();
+      finishedKeys.addAll(sentimentsByKey.keySet());
+    }
+
+    for (TaskHandle task : tasks) {
+      if (!finished.contains(task) && finishedKeys.contains(SentimentQueue.getCommentKey(task))) {
+        finished.add(task);
+      }
+    }
+    return finished;
+  }
+
+  /**
+   * Back-fills the comments and adds them to the aggregates in one
+   * transaction. Comments are re-read inside it, so ones deleted or already
+   * scored by a duplicate task are skipped instead of being counted twice.
+   */
+  private void saveSentiments(Map<Key, Sentiment> sentimentsByKey) {
+    Transaction txn = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      Map<Key, Entity> comments = datastore.get(txn, sentimentsByKey.keySet());
+      SentimentStats stats = SentimentStats.get(datastore, txn);
+
+      List<Entity> scored = new ArrayList<>();
+      for (Entity comment : comments.values()) {
+        if (comment.getProperty("sentimentScore") != null) {
+          continue;
+        }
+
+        Sentiment sentiment = sentimentsByKey.get(comment.getKey());
+        comment.setProperty("sentimentScore", (double) sentiment.getScore());
+        comment.setProperty("sentimentMagnitude", (double) sentiment.getMagnitude());
+        comment.setProperty(SentimentStats.COUNTED_PROPERTY, true);
+        stats.add(sentiment.getScore(), sentiment.getMagnitude());
+
+        scored.add(comment);
+      }
+
+      if (!scored.isEmpty()) {
+        datastore.put(txn, scored);
+        stats.put(datastore, txn);
+      }
+      txn.commit();
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+  }
+}
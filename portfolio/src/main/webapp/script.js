@@ -296,23 +296,54 @@ function buildSectionEntryDescription(description) {
 }
 
 /**
- * Processes and appends a list of comments. Renders a message
- * if there are no comments to show.
+ * Number of comments requested from the server per page.
+ */
+const COMMENTS_PAGE_SIZE = 10;
+
+/**
+ * Pagination state of the comments list. `cursor` is the opaque token
+ * returned with the last page, `hasMore` turns false once the server stops
+ * returning one, `loading` prevents requesting the same page twice, and
+ * `sentinelVisible` tracks whether the end of the list is on screen.
+ */
+const commentsState = {
+  cursor: null,
+  hasMore: true,
+  loading: false,
+  sentinelVisible: false
+};
+
+/**
+ * Processes and appends a page of comments to the comments list,
+ * right before the infinite scroll sentinel. Renders a message
+ * if the list is still empty afterwards.
  * 
- * @param {!Array<string>} comments A list of comments.
+ * @param {!Array<!Object>} comments A list of comments.
  */
 function renderComments(comments) {
   const commentList = document.querySelector('.comments-list');
-  
-  commentList.querySelectorAll('.comment').forEach(element => element.remove());
-  
-  if (!comments.length) {
-    commentList.append(buildNoCommentsFragment());
+  const sentinel = commentList.querySelector('.comments-sentinel');
+
+  if (!comments.length && !commentList.querySelector('.comment')) {
+    sentinel.before(buildNoCommentsFragment());
     return;
   }
-  
+
   const commentFragments = comments.map(buildCommentFragment);
-  commentList.append(...commentFragments);
+  sentinel.before(...commentFragments);
+}
+
+/**
+ * Removes every rendered comment and resets the pagination state,
+ * so the list can be loaded again from the first page.
+ */
+function clearComments() {
+  const commentList = document.querySelector('.comments-list');
+
+  commentList.querySelectorAll('.comment, .no-comments').forEach(element => element.remove());
+
+  commentsState.cursor = null;
+  commentsState.hasMore = true;
 }
 
 /**
@@ -344,12 +375,28 @@ function populateCommentFragment(fragment, comment) {
   fragment.querySelector('.date').append(date.toLocaleString());
   fragment.querySelector('.title').style.setProperty(
     '--indicator-color', 
-    getSentimentColor(comment.sentimentScore, comment.sentimentMagnitude)
+    getCommentColor(comment)
   );
 
   return fragment;
 }
 
+/**
+ * Returns the indicator color of a comment. Comments that haven't been
+ * scored yet have no sentiment data, and get a neutral gray.
+ * 
+ * @param {!Object} comment The comment to get the color for.
+ * 
+ * @return {string} A string containing a CSS color
+ */
+function getCommentColor(comment) {
+  if (comment.sentimentScore === undefined) {
+    return 'lightgray';
+  }
+
+  return getSentimentColor(comment.sentimentScore, comment.sentimentMagnitude);
+}
+
 /**
  * Calculates a color between red and green, based on the sentiment
  * data provided. If the sentiment score is -1, the color will be
@@ -405,48 +452,118 @@ function mapRange(value, lowerBoundIn, upperBoundIn, lowerBoundOut, upperBoundOu
 function buildNoCommentsFragment() {
   const fragment = document.createElement('h4');
 
-  fragment.classList.add('center-in-flex');
+  fragment.classList.add('center-in-flex', 'no-comments');
   fragment.textContent = 'There\'s no comments :('
 
   return fragment;
 }
 
 /**
- * Requests a list of comments from the server.
+ * Requests a page of comments from the server.
  * 
- * @return {!Promise<!Array<string>>} A list of comments.
+ * @param {?string} cursor The cursor returned with the previous page,
+ *    or null to request the first page.
+ * 
+ * @return {!Promise<{comments: !Array<!Object>, cursor: ?string}>} A page of
+ *    comments, and the cursor to request the next one.
  */
-async function loadComments() {
-  const request = await fetch('/data');
+async function loadComments(cursor) {
+  const params = new URLSearchParams({ limit: COMMENTS_PAGE_SIZE });
+  if (cursor) {
+    params.set('cursor', cursor);
+  }
+
+  const request = await fetch(`/data?${params}`);
 
   return await request.json();
 }
 
+/**
+ * Loads and renders the next page of comments, unless a page is
+ * already being loaded or there are no more pages.
+ */
+async function loadNextComments() {
+  if (commentsState.loading || !commentsState.hasMore) {
+    return;
+  }
+
+  commentsState.loading = true;
+  try {
+    const page = await loadComments(commentsState.cursor);
+
+    commentsState.cursor = page.cursor;
+    commentsState.hasMore = Boolean(page.cursor);
+    renderComments(page.comments);
+  } finally {
+    commentsState.loading = false;
+  }
+
+  // The observer only fires on changes, so keep going while a short page
+  // leaves the end of the list on screen.
+  if (commentsState.sentinelVisible) {
+    await loadNextComments();
+  }
+}
+
+/**
+ * Loads more comments whenever the sentinel at the end of the
+ * comments list scrolls into view.
+ */
+function observeCommentsSentinel() {
+  const commentList = document.querySelector('.comments-list');
+  const sentinel = commentList.querySelector('.comments-sentinel');
+
+  const observer = new IntersectionObserver(entries => {
+    commentsState.sentinelVisible = entries.some(entry => entry.isIntersecting);
+
+    if (commentsState.sentinelVisible) {
+      loadNextComments();
+    }
+  }, { root: commentList, rootMargin: '0px 200px 0px 0px' });
+
+  observer.observe(sentinel);
+}
+
 /**
  * Sends a request to delete all comments, and 
  * re-renders the comments list.
  */
 async function deleteComments() {
-  await requestCommentDeletion()
-    .then(loadComments)
-    .then(renderComments);
+  await requestCommentDeletion();
+
+  clearComments();
+  await loadNextComments();
 }
 
 /**
- * Sends a request to the server to remove all
- * comments.
+ * Sends requests to the server to remove all comments. The server
+ * deletes as many as it can per request and returns a cursor to
+ * resume from, so keep asking until it reports it is done.
  */
 async function requestCommentDeletion() {
-  await fetch('/delete-data', {
-    method: 'POST'
-  });
+  let cursor = null;
+
+  do {
+    const params = new URLSearchParams();
+    if (cursor) {
+      params.set('cursor', cursor);
+    }
+
+    const request = await fetch('/delete-data', {
+      method: 'POST',
+      body: params
+    });
+    const progress = await request.json();
+
+    cursor = progress.done ? null : progress.cursor;
+  } while (cursor);
 }
 
 /**
  * Called after the HTML body has been loaded.
  */
 function main() {
-  loadComments().then(renderComments);
+  observeCommentsSentinel();
   renderContactData(RESUME.contactData);
   renderSectionData(RESUME.sections);
 }
@@ -0,0 +1,77 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.cloud.language.v1.Sentiment;
+
+/** Tests for {@link CachingSentimentAnalyzer}, in front of a {@link FakeSentimentAnalyzer}. */
+@RunWith(JUnit4.class)
+public final class CachingSentimentAnalyzerTest {
+  @Test
+  public void sendsEachNormalizedTextOnce() throws IOException {
+    FakeSentimentAnalyzer fake = new FakeSentimentAnalyzer();
+    CachingSentimentAnalyzer analyzer = new CachingSentimentAnalyzer(fake, 100);
+
+    List<Sentiment> sentiments =
+        analyzer.analyzeAll(Arrays.asList("Good job", "good  JOB ", "Meh"));
+    analyzer.analyze("Meh");
+
+    Assert.assertEquals(2, fake.getCallCount());
+    Assert.assertEquals(3, sentiments.size());
+    Assert.assertEquals(0.8f, sentiments.get(1).getScore(), 0);
+    Assert.assertEquals(-0.4f, sentiments.get(2).getScore(), 0);
+    Assert.assertEquals(2, analyzer.getHitCount());
+    Assert.assertEquals(2, analyzer.getMissCount());
+    Assert.assertEquals(0.5, analyzer.getHitRate(), 0);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() throws IOException {
+    FakeSentimentAnalyzer fake = new FakeSentimentAnalyzer();
+    CachingSentimentAnalyzer analyzer = new CachingSentimentAnalyzer(fake, 2);
+
+    analyzer.analyze("a");
+    analyzer.analyze("b");
+    analyzer.analyze("a");
+    analyzer.analyze("c");
+    analyzer.analyze("a");
+    analyzer.analyze("b");
+
+    Assert.assertEquals(4, fake.getCallCount());
+  }
+
+  @Test
+  public void hitRateIsZeroBeforeAnyText() {
+    CachingSentimentAnalyzer analyzer =
+        new CachingSentimentAnalyzer(new FakeSentimentAnalyzer(), 2);
+
+    Assert.assertEquals(0, analyzer.getHitRate(), 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void closeClosesTheDelegate() {
+    FakeSentimentAnalyzer fake = new FakeSentimentAnalyzer();
+    new CachingSentimentAnalyzer(fake, 2).close();
+
+    fake.analyze("a");
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/** Tests for {@link CommentCache}, against the local Memcache service. */
+@RunWith(JUnit4.class)
+public final class CommentCacheTest {
+  private final LocalServiceTestHelper helper =
+      new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private CommentCache cache;
+
+  @Before
+  public void setUp() {
+    helper.setUp();
+    cache = new CommentCache(MemcacheServiceFactory.getMemcacheService("comments"));
+  }
+
+  @After
+  public void tearDown() {
+    helper.tearDown();
+  }
+
+  @Test
+  public void repeatedLoadsHitTheCache() {
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("[1]", get("10:"));
+    }
+
+    Assert.assertEquals(1, loads.get());
+    Assert.assertEquals(9, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void pagesAreCachedSeparately() {
+    get("10:");
+    get("10:cursor");
+    get("10:");
+    get("10:cursor");
+
+    Assert.assertEquals(2, loads.get());
+    Assert.assertEquals(2, cache.getHitCount());
+  }
+
+  @Test
+  public void invalidateReloadsEveryPage() {
+    get("10:");
+    get("10:cursor");
+    cache.invalidate();
+
+    Assert.assertEquals("[3]", get("10:"));
+    Assert.assertEquals("[4]", get("10:cursor"));
+    Assert.assertEquals(4, cache.getMissCount());
+  }
+
+  @Test
+  public void cachesAreSharedThroughMemcache() {
+    CommentCache otherInstance =
+        new CommentCache(MemcacheServiceFactory.getMemcacheService("comments"));
+
+    get("10:");
+    otherInstance.get("10:", loader());
+    otherInstance.invalidate();
+    get("10:");
+
+    Assert.assertEquals(2, loads.get());
+    Assert.assertEquals(1, otherInstance.getHitCount());
+  }
+
+  /** Gets a page through {@link #cache}, numbering each load in the returned JSON. */
+  private String get(String pageKey) {
+    return new String(cache.get(pageKey, loader()), StandardCharsets.UTF_8);
+  }
+
+  private Supplier<byte[]> loader() {
+    return () -> ("[" + loads.incrementAndGet() + "]").getBytes(StandardCharsets.UTF_8);
+  }
+}
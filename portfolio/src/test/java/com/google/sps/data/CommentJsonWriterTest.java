@@ -0,0 +1,91 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/** Tests for {@link CommentJsonWriter}. */
+@RunWith(JUnit4.class)
+public final class CommentJsonWriterTest {
+  @Test
+  public void writesCommentsAndCursor() {
+    List<Entity> comments = new ArrayList<>();
+    comments.add(comment("Nice \"site\" \u2713", 2, 0.5, 1.5));
+    comments.add(comment("Hello", 1, null, null));
+
+    JsonObject page = parse(CommentJsonWriter.writePage(comments, "next"));
+    JsonArray written = page.getAsJsonArray("comments");
+
+    Assert.assertEquals("next", page.get("cursor").getAsString());
+    Assert.assertEquals(2, written.size());
+
+    JsonObject scored = written.get(0).getAsJsonObject();
+    Assert.assertEquals("Nice \"site\" \u2713", scored.get("content").getAsString());
+    Assert.assertEquals(2, scored.get("timestamp").getAsLong());
+    Assert.assertEquals(0.5, scored.get("sentimentScore").getAsDouble(), 0);
+    Assert.assertEquals(1.5, scored.get("sentimentMagnitude").getAsDouble(), 0);
+
+    JsonObject unscored = written.get(1).getAsJsonObject();
+    Assert.assertEquals("Hello", unscored.get("content").getAsString());
+    Assert.assertFalse(unscored.has("sentimentScore"));
+    Assert.assertFalse(unscored.has("sentimentMagnitude"));
+  }
+
+  @Test
+  public void leavesOutCursorOnLastPage() {
+    JsonObject page = parse(CommentJsonWriter.writePage(new ArrayList<>(), null));
+
+    Assert.assertEquals(0, page.getAsJsonArray("comments").size());
+    Assert.assertFalse(page.has("cursor"));
+  }
+
+  @Test
+  public void encodesContentAsUtf8() {
+    List<Entity> comments = new ArrayList<>();
+    comments.add(comment("caf\u00e9 \u2713", 1, null, null));
+
+    byte[] json = CommentJsonWriter.writePage(comments, null);
+
+    Assert.assertArrayEquals(
+        "{\"comments\":[{\"content\":\"caf\u00e9 \u2713\",\"timestamp\":1}]}"
+            .getBytes(StandardCharsets.UTF_8),
+        json);
+  }
+
+  private static Entity comment(
+      String content, long timestamp, Double sentimentScore, Double sentimentMagnitude) {
+    Entity comment = new Entity("Comment");
+    comment.setProperty("content", content);
+    comment.setProperty("timestamp", timestamp);
+    comment.setProperty("sentimentScore", sentimentScore);
+    comment.setProperty("sentimentMagnitude", sentimentScore == null ? null : sentimentMagnitude);
+    return comment;
+  }
+
+  private static JsonObject parse(byte[] json) {
+    return new JsonParser().parse(new String(json, StandardCharsets.UTF_8)).getAsJsonObject();
+  }
+}
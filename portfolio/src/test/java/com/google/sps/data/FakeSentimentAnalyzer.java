@@ -0,0 +1,52 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.language.v1.Sentiment;
+
+/**
+ * Local stand-in for {@link CloudSentimentAnalyzer} that scores text by a
+ * keyword instead of calling the API, and counts the texts it was given.
+ */
+final class FakeSentimentAnalyzer implements SentimentAnalyzer {
+  private final AtomicInteger calls = new AtomicInteger();
+  private volatile boolean closed;
+
+  /** Scores text containing "good" as positive and anything else as negative. */
+  @Override
+  public Sentiment analyze(String text) {
+    if (closed) {
+      throw new IllegalStateException("Analyzer is closed");
+    }
+    calls.incrementAndGet();
+
+    float score = text.toLowerCase(Locale.ROOT).contains("good") ? 0.8f : -0.4f;
+    return Sentiment.newBuilder().setScore(score).setMagnitude(Math.abs(score)).build();
+  }
+
+  /** Returns how many texts were analyzed. */
+  int getCallCount() {
+    return calls.get();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright 2020 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.cloud.language.v1.Sentiment;
+
+/** Tests for the default methods of {@link SentimentAnalyzer}. */
+@RunWith(JUnit4.class)
+public final class SentimentAnalyzerTest {
+  @Test
+  public void analyzeAllScoresEachTextInOrder() throws IOException {
+    FakeSentimentAnalyzer analyzer = new FakeSentimentAnalyzer();
+
+    List<Sentiment> sentiments = analyzer.analyzeAll(Arrays.asList("Good job", "Meh", "good"));
+
+    Assert.assertEquals(3, analyzer.getCallCount());
+    Assert.assertEquals(3, sentiments.size());
+    Assert.assertEquals(0.8f, sentiments.get(0).getScore(), 0);
+    Assert.assertEquals(-0.4f, sentiments.get(1).getScore(), 0);
+    Assert.assertEquals(0.8f, sentiments.get(2).getScore(), 0);
+  }
+
+  @Test
+  public void analyzeAllOfNoTextsMakesNoCalls() throws IOException {
+    FakeSentimentAnalyzer analyzer = new FakeSentimentAnalyzer();
+
+    Assert.assertTrue(analyzer.analyzeAll(new ArrayList<>()).isEmpty());
+    Assert.assertEquals(0, analyzer.getCallCount());
+  }
+}
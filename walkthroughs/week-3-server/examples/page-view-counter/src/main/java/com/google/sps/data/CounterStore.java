@@ -14,13 +14,11 @@
 
 package com.google.sps.data;
 
-/** Represents a UFO sighting at a specific lat lng point. */
-public class UfoSighting {
-  private double lat;
-  private double lng;
+/** Durable storage behind a {@link ShardedCounter}. Implementations must be thread-safe. */
+public interface CounterStore {
+  /** Adds {@code delta} to the stored count. */
+  void add(long delta);
 
-  public UfoSighting(double lat, double lng) {
-    this.lat = lat;
-    this.lng = lng;
-  }
+  /** Returns the stored count, including increments flushed by other instances. */
+  long total();
 }
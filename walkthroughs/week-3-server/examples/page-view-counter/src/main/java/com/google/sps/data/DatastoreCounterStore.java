@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+
+/**
+ * {@link CounterStore} that spreads a count over several "CounterShard"
+ * entities. Each flush updates one random shard, so concurrent flushes rarely
+ * contend on the same entity, and the total is the sum of all shards.
+ */
+public final class DatastoreCounterStore implements CounterStore {
+  private static final String KIND = "CounterShard";
+
+  private final DatastoreService datastore;
+  private final List<Key> shardKeys = new ArrayList<>();
+
+  public DatastoreCounterStore(String name, int shardCount) {
+    this(DatastoreServiceFactory.getDatastoreService(), name, shardCount);
+  }
+
+  public DatastoreCounterStore(DatastoreService datastore, String name, int shardCount) {
+    this.datastore = datastore;
+    for (int i = 0; i < shardCount; i++) {
+      shardKeys.add(KeyFactory.createKey(KIND, name + "-" + i));
+    }
+  }
+
+  @Override
+  public void add(long delta) {
+    Key shardKey = shardKeys.get(ThreadLocalRandom.current().nextInt(shardKeys.size()));
+
+    Transaction txn = datastore.beginTransaction();
+    try {
+      Entity shard;
+      try {
+        shard = datastore.get(txn, shardKey);
+      } catch (EntityNotFoundException e) {
+        shard = new Entity(shardKey);
+        shard.setUnindexedProperty("count", 0L);
+      }
+
+      shard.setUnindexedProperty("count", (long) shard.getProperty("count") + delta);
+      datastore.put(txn, shard);
+
+      txn.commit();
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+  }
+
+  @Override
+  public long total() {
+    long total = 0;
+    for (Entity shard : datastore.get(shardKeys).values()) {
+      total += (long) shard.getProperty("count");
+    }
+
+    return total;
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counter that is cheap to increment from many threads at once. Increments go
+ * to a striped {@link LongAdder} in memory, and are written behind to a
+ * {@link CounterStore} at most once per flush interval.
+ *
+ * <p>The flush runs on whichever request thread first notices the interval
+ * has passed, since App Engine only allows Datastore calls from request
+ * threads. Other threads never wait for it.
+ */
+public final class ShardedCounter {
+  private static final Logger logger = Logger.getLogger(ShardedCounter.class.getName());
+
+  private final CounterStore store;
+  private final long flushIntervalMillis;
+
+  /** Every increment ever made on this instance. Never reset, so no increment can be lost. */
+  private final LongAdder increments = new LongAdder();
+
+  private final Lock flushLock = new ReentrantLock();
+  private final AtomicLong nextFlushMillis = new AtomicLong();
+
+  /** Replaced as a whole, so readers always see a matching pair of values. */
+  private volatile Snapshot snapshot = new Snapshot(0, 0);
+
+  public ShardedCounter(CounterStore store, long flushIntervalMillis) {
+    this.store = store;
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  /** Adds one to the count, flushing to the store if the interval has passed. */
+  public void increment() {
+    increments.increment();
+
+    long now = System.currentTimeMillis();
+    long nextFlush = nextFlushMillis.get();
+    if (now >= nextFlush && nextFlushMillis.compareAndSet(nextFlush, now + flushIntervalMillis)) {
+      tryFlush();
+    }
+  }
+
+  /**
+   * Returns the count known to this instance: the stored total as of the last
+   * flush, plus the increments made here since then.
+   */
+  public long count() {
+    Snapshot current = snapshot;
+
+    return current.storedTotal + increments.sum() - current.flushed;
+  }
+
+  /** Writes pending increments to the store, waiting for any flush already running. */
+  public void flush() {
+    flushLock.lock();
+    try {
+      flushPending();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void tryFlush() {
+    if (!flushLock.tryLock()) {
+      return;
+    }
+
+    try {
+      flushPending();
+    } catch (RuntimeException e) {
+      // The request that happened to flush shouldn't fail for it; the next flush tries again.
+      logger.log(Level.WARNING, "Could not flush the counter", e);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Must hold {@code flushLock}. If adding to the store fails, the increments
+   * stay pending for the next flush. Once it succeeds they are marked as
+   * flushed straight away, so failing to read the total back can't make the
+   * next flush add them again.
+   */
+  private void flushPending() {
+    Snapshot current = snapshot;
+    long seen = increments.sum();
+    long delta = seen - current.flushed;
+
+    if (delta > 0) {
+      store.add(delta);
+      // Until the total is read back, count what this instance just added.
+      snapshot = new Snapshot(seen, current.storedTotal + delta);
+    }
+
+    snapshot = new Snapshot(seen, store.total());
+  }
+
+  private static final class Snapshot {
+    /** Value of {@code increments} already written to the store. */
+    final long flushed;
+    /** Total read back from the store right after that write. */
+    final long storedTotal;
+
+    Snapshot(long flushed, long storedTotal) {
+      this.flushed = flushed;
+      this.storedTotal = storedTotal;
+    }
+  }
+}
@@ -14,6 +14,8 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.DatastoreCounterStore;
+import com.google.sps.data.ShardedCounter;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -24,14 +26,28 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/page-views")
 public class PageViewServlet extends HttpServlet {
 
-  private int pageViews = 0;
+  private static final int SHARD_COUNT = 20;
+  private static final long FLUSH_INTERVAL_MILLIS = 5000;
+
+  private ShardedCounter pageViews;
+
+  @Override
+  public void init() {
+    pageViews = new ShardedCounter(
+        new DatastoreCounterStore("page-views", SHARD_COUNT), FLUSH_INTERVAL_MILLIS);
+  }
+
+  @Override
+  public void destroy() {
+    pageViews.flush();
+  }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    pageViews++;
+    pageViews.increment();
 
     response.setContentType("text/html;");
     response.getWriter().println("<h1>Page Views</h1>");
-    response.getWriter().println("<p>This page has been viewed " + pageViews + " times.</p>");
+    response.getWriter().println("<p>This page has been viewed " + pageViews.count() + " times.</p>");
   }
 }
@@ -0,0 +1,149 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ShardedCounter}, against an in-memory {@link CounterStore}. */
+@RunWith(JUnit4.class)
+public final class ShardedCounterTest {
+  private static final int THREADS = 32;
+  private static final int INCREMENTS_PER_THREAD = 100_000;
+  /** A flush interval no test outlives, so only the first increment and explicit calls flush. */
+  private static final long NEVER = 60 * 60 * 1000;
+
+  /** In-memory store that also counts how often it was written to, and can fail reads. */
+  private static final class FakeStore implements CounterStore {
+    final AtomicLong total = new AtomicLong();
+    final AtomicLong writes = new AtomicLong();
+    volatile int failingTotalReads;
+
+    @Override
+    public void add(long delta) {
+      writes.incrementAndGet();
+      total.addAndGet(delta);
+    }
+
+    @Override
+    public long total() {
+      if (failingTotalReads > 0) {
+        failingTotalReads--;
+        throw new IllegalStateException("read failed");
+      }
+      return total.get();
+    }
+  }
+
+  @Test
+  public void countsSingleThread() {
+    FakeStore store = new FakeStore();
+    ShardedCounter counter = new ShardedCounter(store, NEVER);
+
+    counter.increment();
+    counter.increment();
+    counter.increment();
+
+    Assert.assertEquals(3, counter.count());
+  }
+
+  @Test
+  public void flushWritesPendingIncrementsOnce() {
+    FakeStore store = new FakeStore();
+    ShardedCounter counter = new ShardedCounter(store, NEVER);
+
+    // The first increment always flushes, later ones wait for the interval.
+    for (int i = 0; i < 10; i++) {
+      counter.increment();
+    }
+    counter.flush();
+    counter.flush();
+
+    Assert.assertEquals(10, store.total());
+    Assert.assertEquals(2, store.writes.get());
+    Assert.assertEquals(10, counter.count());
+  }
+
+  @Test
+  public void failedTotalReadDoesNotAddIncrementsTwice() {
+    FakeStore store = new FakeStore();
+    store.failingTotalReads = 1;
+    ShardedCounter counter = new ShardedCounter(store, NEVER);
+
+    // The first increment flushes on the request path, which must not throw.
+    counter.increment();
+    counter.increment();
+    counter.flush();
+
+    Assert.assertEquals(2, store.total());
+    Assert.assertEquals(2, counter.count());
+  }
+
+  @Test
+  public void includesIncrementsFromOtherInstances() {
+    FakeStore store = new FakeStore();
+    ShardedCounter counter = new ShardedCounter(store, NEVER);
+    ShardedCounter otherInstance = new ShardedCounter(store, NEVER);
+
+    counter.increment();
+    otherInstance.increment();
+    otherInstance.increment();
+    otherInstance.flush();
+    counter.flush();
+
+    Assert.assertEquals(3, counter.count());
+  }
+
+  @Test
+  public void noIncrementsLostUnderContention() throws InterruptedException {
+    FakeStore store = new FakeStore();
+    // A zero interval makes threads race to flush while others keep incrementing.
+    ShardedCounter counter = new ShardedCounter(store, 0);
+
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+
+        for (int j = 0; j < INCREMENTS_PER_THREAD; j++) {
+          counter.increment();
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    counter.flush();
+
+    long expected = (long) THREADS * INCREMENTS_PER_THREAD;
+    Assert.assertEquals(expected, store.total());
+    Assert.assertEquals(expected, counter.count());
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Random;
+
+/**
+ * Picks an index with probability proportional to its weight in constant
+ * time, using Vose's alias method: each of the n columns holds at most two
+ * outcomes, so a pick is one uniform column and one biased coin flip.
+ * Building the table takes O(n).
+ */
+public final class AliasTable {
+
+  /** Chance of keeping each column's own index rather than its alias. */
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  /** @throws IllegalArgumentException if there are no weights, or one isn't positive and finite */
+  public AliasTable(double[] weights) {
+    int n = weights.length;
+    if (n == 0) {
+      throw new IllegalArgumentException("No weights");
+    }
+
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight > 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Weights must be positive: " + weight);
+      }
+      sum += weight;
+    }
+
+    probabilities = new double[n];
+    aliases = new int[n];
+
+    // Scale so the average column is 1, then pair each column below 1 with
+    // one above it, which gives up what the small one lacks.
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / sum;
+      if (scaled[i] < 1) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+
+      scaled[more] = (scaled[more] + scaled[less]) - 1;
+      if (scaled[more] < 1) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+
+    // Whatever is left is 1 up to rounding error.
+    while (largeCount > 0) {
+      probabilities[large[--largeCount]] = 1;
+    }
+    while (smallCount > 0) {
+      probabilities[small[--smallCount]] = 1;
+    }
+  }
+
+  public int size() {
+    return probabilities.length;
+  }
+
+  /** Returns an index from 0 to {@link #size()} - 1, drawn using {@code random}. */
+  public int next(Random random) {
+    int column = random.nextInt(probabilities.length);
+    return random.nextDouble() < probabilities[column] ? column : aliases[column];
+  }
+}
@@ -0,0 +1,176 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A corpus of quotes read from a UTF-8 file with one quote per line,
+ * optionally preceded by a weight and a tab, e.g. "3\tI am in a charming
+ * state of confusion. - Ada Lovelace". Quotes without a weight count as 1,
+ * and blank lines are skipped.
+ *
+ * <p>The file is memory-mapped and only the offsets of each quote are kept
+ * on the heap, so the corpus can be much larger than the heap and quotes are
+ * copied straight from the mapping to the response, never decoded into
+ * Strings. A corpus is safe to share between threads.
+ */
+public final class QuoteCorpus {
+
+  private final ByteBuffer data;
+
+  /** Where each quote starts and ends in {@link #data}. */
+  private final int[] starts;
+  private final int[] ends;
+
+  /** Null when every quote has the same weight and a uniform pick will do. */
+  private final AliasTable weights;
+
+  private QuoteCorpus(ByteBuffer data, int[] starts, int[] ends, AliasTable weights) {
+    this.data = data;
+    this.starts = starts;
+    this.ends = ends;
+    this.weights = weights;
+  }
+
+  /** Maps the file at {@code path}, which must be under 2 GB. */
+  public static QuoteCorpus map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Quote corpus is too large to map: " + path);
+      }
+      // The mapping stays valid after the channel is closed.
+      return index(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /** Reads a corpus onto the heap, for when it isn't available as a file. */
+  public static QuoteCorpus read(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      bytes.write(buffer, 0, read);
+    }
+    return index(ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer());
+  }
+
+  private static QuoteCorpus index(ByteBuffer data) throws IOException {
+    int[] starts = new int[1024];
+    int[] ends = new int[1024];
+    double[] weights = new double[1024];
+    boolean weighted = false;
+    int count = 0;
+
+    int limit = data.limit();
+    int lineStart = 0;
+    int lineNumber = 0;
+    while (lineStart < limit) {
+      lineNumber++;
+      int lineEnd = lineStart;
+      int tab = -1;
+      while (lineEnd < limit && data.get(lineEnd) != '\n') {
+        if (tab == -1 && data.get(lineEnd) == '\t') {
+          tab = lineEnd;
+        }
+        lineEnd++;
+      }
+      int next = lineEnd + 1;
+      if (lineEnd > lineStart && data.get(lineEnd - 1) == '\r') {
+        lineEnd--;
+      }
+
+      int start = tab == -1 ? lineStart : tab + 1;
+      if (start < lineEnd) {
+        double weight = 1;
+        if (tab != -1) {
+          weight = parseWeight(data, lineStart, tab, lineNumber);
+          weighted |= weight != 1;
+        }
+
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+          ends = Arrays.copyOf(ends, count * 2);
+          weights = Arrays.copyOf(weights, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = lineEnd;
+        weights[count] = weight;
+        count++;
+      }
+      lineStart = next;
+    }
+
+    if (count == 0) {
+      throw new IOException("Quote corpus is empty");
+    }
+    return new QuoteCorpus(
+        data,
+        Arrays.copyOf(starts, count),
+        Arrays.copyOf(ends, count),
+        weighted ? new AliasTable(Arrays.copyOf(weights, count)) : null);
+  }
+
+  private static double parseWeight(ByteBuffer data, int start, int end, int lineNumber)
+      throws IOException {
+    byte[] digits = new byte[end - start];
+    for (int i = 0; i < digits.length; i++) {
+      digits[i] = data.get(start + i);
+    }
+    String text = new String(digits, StandardCharsets.US_ASCII).trim();
+    try {
+      double weight = Double.parseDouble(text);
+      if (weight > 0 && !Double.isInfinite(weight)) {
+        return weight;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    throw new IOException("Line " + lineNumber + " has a bad weight: " + text);
+  }
+
+  public int size() {
+    return starts.length;
+  }
+
+  /** Returns the index of a random quote, chosen by weight. */
+  public int pick() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return weights == null ? random.nextInt(starts.length) : weights.next(random);
+  }
+
+  /** Writes the UTF-8 bytes of the quote at {@code index} to {@code out}. */
+  public void writeQuote(int index, OutputStream out) throws IOException {
+    // A duplicate has its own position, so threads don't disturb each other.
+    // Going through Buffer keeps this runnable on Java 8 when built on a later JDK.
+    ByteBuffer quote = data.duplicate();
+    ((Buffer) quote).limit(ends[index]).position(starts[index]);
+
+    byte[] bytes = new byte[quote.remaining()];
+    quote.get(bytes);
+    out.write(bytes);
+  }
+}
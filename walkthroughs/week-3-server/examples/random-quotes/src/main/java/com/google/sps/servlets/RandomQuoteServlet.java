@@ -14,45 +14,74 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.QuoteCorpus;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that returns a random quote. */
+/**
+ * Servlet that returns a random quote, chosen by weight from the corpus file
+ * named by the "quotes.corpus" system property, or WEB-INF/quotes.txt if it
+ * isn't set. The property can be set in appengine-web.xml to serve a larger
+ * corpus; a relative path is taken from the webapp root. See
+ * {@link QuoteCorpus} for the file format.
+ */
 @WebServlet("/random-quote")
 public final class RandomQuoteServlet extends HttpServlet {
 
-  private List<String> quotes;
+  private static final String DEFAULT_CORPUS = "/WEB-INF/quotes.txt";
+
+  private QuoteCorpus quotes;
 
   @Override
-  public void init() {
-    quotes = new ArrayList<>();
-    quotes.add(
-        "A ship in port is safe, but that is not what ships are for. "
-            + "Sail out to sea and do new things. - Grace Hopper");
-    quotes.add("They told me computers could only do arithmetic. - Grace Hopper");
-    quotes.add("A ship in port is safe, but that's not what ships are built for. - Grace Hopper");
-    quotes.add("It is much easier to apologise than it is to get permission. - Grace Hopper");
-    quotes.add("If you can't give me poetry, can't you give me poetical science? - Ada Lovelace");
-    quotes.add("I am in a charming state of confusion. - Ada Lovelace");
-    quotes.add(
-        "The Analytical Engine weaves algebraic patterns, "
-            + "just as the Jacquard loom weaves flowers and leaves. - Ada Lovelace");
-    quotes.add(
-        "Sometimes it is the people no one can imagine anything of "
-            + "who do the things no one can imagine. - Alan Turing");
-    quotes.add("Those who can imagine anything, can create the impossible. - Alan Turing");
+  public void init() throws ServletException {
+    try {
+      Path corpusPath = getCorpusPath();
+      if (corpusPath != null) {
+        quotes = QuoteCorpus.map(corpusPath);
+      } else {
+        // The webapp isn't unpacked on disk, so there is nothing to map.
+        try (InputStream input = getServletContext().getResourceAsStream(DEFAULT_CORPUS)) {
+          quotes = QuoteCorpus.read(input);
+        }
+      }
+    } catch (IOException e) {
+      throw new ServletException("Could not load the quotes", e);
+    }
+  }
+
+  /**
+   * Returns the corpus file, with a relative "quotes.corpus" resolved against
+   * the webapp root rather than the working directory, or null if the webapp
+   * isn't unpacked on disk.
+   */
+  private Path getCorpusPath() {
+    String configured = System.getProperty("quotes.corpus");
+    if (configured == null) {
+      String defaultPath = getServletContext().getRealPath(DEFAULT_CORPUS);
+      return defaultPath == null ? null : Paths.get(defaultPath);
+    }
+
+    Path path = Paths.get(configured);
+    String webappRoot = getServletContext().getRealPath("/");
+    if (path.isAbsolute() || webappRoot == null) {
+      return path;
+    }
+    return Paths.get(webappRoot).resolve(path);
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    String quote = quotes.get((int) (Math.random() * quotes.size()));
-
-    response.setContentType("text/html;");
-    response.getWriter().println(quote);
+    response.setContentType("text/html;charset=UTF-8");
+    ServletOutputStream out = response.getOutputStream();
+    quotes.writeQuote(quotes.pick(), out);
+    out.write('\n');
   }
 }
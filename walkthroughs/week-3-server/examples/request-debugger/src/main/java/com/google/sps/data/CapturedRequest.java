@@ -0,0 +1,244 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * What the debugger shows about one request, copied out of it so it can be
+ * looked at after the request is over.
+ *
+ * <p>Capturing is on the path of every request, so it only copies references
+ * into flat arrays; anything that needs formatting is left to whoever
+ * displays the request.
+ */
+public final class CapturedRequest {
+
+  private static final String[] NONE = new String[0];
+
+  /** Headers that carry credentials, shown as {@link #REDACTED} instead. */
+  private static final String[] SENSITIVE_HEADERS = {
+    "Authorization", "Cookie", "Proxy-Authorization", "X-AppEngine-User-Email"
+  };
+  private static final String REDACTED = "(redacted)";
+
+  /** Bounds what one request can pin in a {@link RequestLog}, however large its form. */
+  private static final int MAX_PARAMETERS = 50;
+  private static final int MAX_VALUE_LENGTH = 200;
+
+  private final long sequence;
+  private final long startMillis;
+  private final long durationNanos;
+  private final int status;
+
+  private final String method;
+  private final String requestUri;
+  private final String queryString;
+  private final int contentLength;
+  private final String contentType;
+  private final String protocol;
+  private final String remoteAddr;
+  private final String serverName;
+  private final String characterEncoding;
+
+  /**
+   * Header names and values, alternating. A header sent twice appears twice.
+   * Credentials such as cookies are redacted.
+   */
+  private final String[] headers;
+
+  /**
+   * Parameter names and values, alternating. A parameter with several values
+   * appears once per value. Only the first {@link #MAX_PARAMETERS} pairs are
+   * kept, each cut to {@link #MAX_VALUE_LENGTH} characters.
+   */
+  private final String[] parameters;
+
+  private CapturedRequest(
+      long sequence,
+      long startMillis,
+      long durationNanos,
+      int status,
+      HttpServletRequest request,
+      String[] headers,
+      String[] parameters) {
+    this.sequence = sequence;
+    this.startMillis = startMillis;
+    this.durationNanos = durationNanos;
+    this.status = status;
+    this.method = request.getMethod();
+    this.requestUri = request.getRequestURI();
+    this.queryString = request.getQueryString();
+    this.contentLength = request.getContentLength();
+    this.contentType = request.getContentType();
+    this.protocol = request.getProtocol();
+    this.remoteAddr = request.getRemoteAddr();
+    this.serverName = request.getServerName();
+    this.characterEncoding = request.getCharacterEncoding();
+    this.headers = headers;
+    this.parameters = parameters;
+  }
+
+  /**
+   * Captures {@code request}. Call it once the request has been handled, so
+   * the parameters are read after the servlet had its chance to read the
+   * body itself.
+   *
+   * @param sequence the position of this request in a {@link RequestLog}, or
+   *     -1 if it isn't logged
+   * @param status the response status, or -1 if it isn't known yet
+   */
+  public static CapturedRequest capture(
+      long sequence, long startMillis, long durationNanos, int status, HttpServletRequest request) {
+    return new CapturedRequest(
+        sequence,
+        startMillis,
+        durationNanos,
+        status,
+        request,
+        captureHeaders(request),
+        captureParameters(request));
+  }
+
+  private static String[] captureHeaders(HttpServletRequest request) {
+    Enumeration<String> names = request.getHeaderNames();
+    if (names == null) {
+      return NONE;
+    }
+
+    String[] headers = new String[32];
+    int size = 0;
+    while (names.hasMoreElements()) {
+      String name = names.nextElement();
+      Enumeration<String> values = request.getHeaders(name);
+      while (values.hasMoreElements()) {
+        if (size == headers.length) {
+          headers = Arrays.copyOf(headers, size * 2);
+        }
+        String value = values.nextElement();
+        headers[size++] = name;
+        headers[size++] = isSensitive(name) ? REDACTED : truncate(value);
+      }
+    }
+    return size == 0 ? NONE : Arrays.copyOf(headers, size);
+  }
+
+  /** Header names are case-insensitive; equalsIgnoreCase rules most out on their length alone. */
+  private static boolean isSensitive(String headerName) {
+    for (String sensitive : SENSITIVE_HEADERS) {
+      if (sensitive.equalsIgnoreCase(headerName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String[] captureParameters(HttpServletRequest request) {
+    Map<String, String[]> parameterMap = request.getParameterMap();
+    if (parameterMap.isEmpty()) {
+      return NONE;
+    }
+
+    int size = 0;
+    for (String[] values : parameterMap.values()) {
+      size += values.length * 2;
+    }
+    String[] parameters = new String[Math.min(size, MAX_PARAMETERS * 2)];
+    int i = 0;
+    for (Map.Entry<String, String[]> parameter : parameterMap.entrySet()) {
+      for (String value : parameter.getValue()) {
+        if (i == parameters.length) {
+          return parameters;
+        }
+        parameters[i++] = truncate(parameter.getKey());
+        parameters[i++] = truncate(value);
+      }
+    }
+    return parameters;
+  }
+
+  /** Copies long values, so the log doesn't keep the whole of a large form or header alive. */
+  private static String truncate(String value) {
+    if (value == null || value.length() <= MAX_VALUE_LENGTH) {
+      return value;
+    }
+    return value.substring(0, MAX_VALUE_LENGTH) + "...";
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getRequestUri() {
+    return requestUri;
+  }
+
+  public String getQueryString() {
+    return queryString;
+  }
+
+  public int getContentLength() {
+    return contentLength;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public String getProtocol() {
+    return protocol;
+  }
+
+  public String getRemoteAddr() {
+    return remoteAddr;
+  }
+
+  public String getServerName() {
+    return serverName;
+  }
+
+  public String getCharacterEncoding() {
+    return characterEncoding;
+  }
+
+  /** Returns header names and values, alternating. Don't modify the array. */
+  public String[] getHeaders() {
+    return headers;
+  }
+
+  /** Returns parameter names and values, alternating. Don't modify the array. */
+  public String[] getParameters() {
+    return parameters;
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The most recent {@link #CAPACITY} requests this instance has handled.
+ *
+ * <p>The log is a ring buffer that takes no locks. Each request takes the
+ * next sequence number and writes its slot with a compare-and-set, so
+ * concurrent requests never wait for each other and the slowest of two
+ * requests a lap apart can't overwrite the newer one. Readers check each
+ * slot's sequence number and skip slots that have been reused or are still
+ * being written.
+ */
+public final class RequestLog {
+
+  /** A power of two, so a sequence number maps to its slot with a mask. */
+  public static final int CAPACITY = 1024;
+
+  private static final RequestLog instance = new RequestLog();
+
+  private final AtomicReferenceArray<CapturedRequest> slots =
+      new AtomicReferenceArray<>(CAPACITY);
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  private RequestLog() {}
+
+  public static RequestLog getInstance() {
+    return instance;
+  }
+
+  /** Captures a request that has been handled and adds it to the log. */
+  public void record(
+      HttpServletRequest request, long startMillis, long durationNanos, int status) {
+    long sequence = nextSequence.getAndIncrement();
+    CapturedRequest captured =
+        CapturedRequest.capture(sequence, startMillis, durationNanos, status, request);
+
+    int slot = (int) sequence & (CAPACITY - 1);
+    while (true) {
+      CapturedRequest current = slots.get(slot);
+      if (current != null && current.getSequence() > sequence) {
+        // A request a lap later got here first, and is the one to keep.
+        return;
+      }
+      if (slots.compareAndSet(slot, current, captured)) {
+        return;
+      }
+    }
+  }
+
+  /** Returns the number of requests logged so far, including ones that no longer fit. */
+  public long getTotalCount() {
+    return nextSequence.get();
+  }
+
+  /**
+   * Returns up to {@code limit} requests older than sequence number
+   * {@code before}, newest first. Pass {@link Long#MAX_VALUE} for the newest
+   * requests, and the sequence number of the last request of a page for the
+   * next one.
+   */
+  public List<CapturedRequest> page(long before, int limit) {
+    long newest = nextSequence.get() - 1;
+    long oldest = Math.max(0, newest - CAPACITY + 1);
+
+    List<CapturedRequest> page = new ArrayList<>(Math.min(limit, CAPACITY));
+    for (long sequence = Math.min(before - 1, newest);
+        sequence >= oldest && page.size() < limit;
+        sequence--) {
+      CapturedRequest captured = slots.get((int) sequence & (CAPACITY - 1));
+      if (captured != null && captured.getSequence() == sequence) {
+        page.add(captured);
+      }
+    }
+    return page;
+  }
+}
@@ -0,0 +1,99 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.CapturedRequest;
+import com.google.sps.data.RequestLog;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that pages through the requests recorded by {@link RequestCaptureFilter},
+ * newest first. Each page links to the next one with a "before" parameter.
+ * It shows other visitors' requests, so WEB-INF/web.xml limits it to admins.
+ */
+@WebServlet(CapturedRequestsServlet.PATH)
+public final class CapturedRequestsServlet extends HttpServlet {
+
+  static final String PATH = "/captured-requests";
+
+  private static final int DEFAULT_LIMIT = 20;
+  private static final int MAX_LIMIT = 100;
+
+  private final RequestLog log = RequestLog.getInstance();
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long before;
+    int limit;
+    try {
+      String beforeParameter = request.getParameter("before");
+      before = beforeParameter == null ? Long.MAX_VALUE : Long.parseLong(beforeParameter);
+      String limitParameter = request.getParameter("limit");
+      limit = limitParameter == null ? DEFAULT_LIMIT : Integer.parseInt(limitParameter);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "before and limit must be integers");
+      return;
+    }
+    limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+    List<CapturedRequest> page = log.page(before, limit);
+
+    response.setContentType("text/html;");
+    PrintWriter out = response.getWriter();
+    out.print("<p>");
+    out.print(log.getTotalCount());
+    out.print(" requests captured, the latest ");
+    out.print(RequestLog.CAPACITY);
+    out.println(" are kept.</p>");
+
+    for (CapturedRequest captured : page) {
+      out.print("<h2>#");
+      out.print(captured.getSequence());
+      out.print(' ');
+      RequestHtml.printEscaped(out, captured.getMethod());
+      out.print(' ');
+      RequestHtml.printEscaped(out, captured.getRequestUri());
+      out.println("</h2>");
+
+      out.print("started: ");
+      out.print(Instant.ofEpochMilli(captured.getStartMillis()));
+      out.println("<br/>");
+      out.print("duration: ");
+      out.print(captured.getDurationNanos() / 1000);
+      out.println(" &micro;s<br/>");
+      out.print("status: ");
+      out.print(captured.getStatus());
+      out.println("<br/>");
+      RequestHtml.print(out, captured);
+    }
+
+    if (page.size() == limit) {
+      out.print("<a href=\"");
+      out.print(PATH);
+      out.print("?before=");
+      out.print(page.get(page.size() - 1).getSequence());
+      out.print("&amp;limit=");
+      out.print(limit);
+      out.println("\">Older requests</a>");
+    }
+  }
+}
@@ -0,0 +1,66 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.RequestLog;
+import java.io.IOException;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records every request to the webapp in the {@link RequestLog}, except for
+ * the pages that show the log, which would otherwise push out what they're
+ * showing.
+ */
+@WebFilter("/*")
+public final class RequestCaptureFilter implements Filter {
+
+  private final RequestLog log = RequestLog.getInstance();
+
+  @Override
+  public void init(FilterConfig filterConfig) {}
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    HttpServletRequest httpRequest = (HttpServletRequest) request;
+    if (CapturedRequestsServlet.PATH.equals(httpRequest.getServletPath())) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    long startMillis = System.currentTimeMillis();
+    long start = System.nanoTime();
+
+    // Assume a failure until the chain returns, so thrown exceptions show as errors.
+    int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    try {
+      chain.doFilter(request, response);
+      status = ((HttpServletResponse) response).getStatus();
+    } finally {
+      log.record(httpRequest, startMillis, System.nanoTime() - start, status);
+    }
+  }
+
+  @Override
+  public void destroy() {}
+}
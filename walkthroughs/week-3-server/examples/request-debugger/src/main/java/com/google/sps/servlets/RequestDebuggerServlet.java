@@ -14,9 +14,9 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.CapturedRequest;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Enumeration;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -25,6 +25,8 @@ import javax.servlet.http.HttpServletResponse;
 /**
  * Servlet that prints out debug info about requests. Explore the API here:
  * https://docs.oracle.com/javaee/7/api/javax/servlet/http/HttpServletRequest.html
+ *
+ * <p>Earlier requests can be found at /captured-requests.
  */
 @WebServlet("/my-data-url")
 public final class RequestDebuggerServlet extends HttpServlet {
@@ -42,46 +44,8 @@ public final class RequestDebuggerServlet extends HttpServlet {
   }
 
   private void printRequest(PrintWriter out, HttpServletRequest request) {
-    out.println("request URL: " + request.getRequestURL());
-    out.println("<br/>");
+    RequestHtml.print(out, CapturedRequest.capture(-1, System.currentTimeMillis(), 0, -1, request));
 
-    out.println("request URI: " + request.getRequestURI());
-    out.println("<br/>");
-
-    out.println("content length: " + request.getContentLength());
-    out.println("<br/>");
-
-    out.println("content type: " + request.getContentType());
-    out.println("<br/>");
-
-    out.println("protocol: " + request.getProtocol());
-    out.println("<br/>");
-
-    out.println("client IP: " + request.getRemoteAddr());
-    out.println("<br/>");
-
-    out.println("server name: " + request.getServerName());
-    out.println("<br/>");
-
-    out.println("character encoding: " + request.getCharacterEncoding());
-    out.println("<br/>");
-
-    out.println("headers:");
-    out.println("<ul>");
-    Enumeration<String> headerNames = request.getHeaderNames();
-    while (headerNames.hasMoreElements()) {
-      String headerName = headerNames.nextElement();
-      out.print("<li>" + headerName + ": " + request.getHeader(headerName) + "</li>");
-    }
-    out.println("</ul>");
-
-    out.println("parameters:");
-    out.println("<ul>");
-    Enumeration<String> parameterNames = request.getParameterNames();
-    while (parameterNames.hasMoreElements()) {
-      String parameterName = parameterNames.nextElement();
-      out.print("<li>" + parameterName + ": " + request.getParameter(parameterName) + "</li>");
-    }
-    out.println("</ul>");
+    out.println("<a href=\"/captured-requests\">Recent requests</a>");
   }
 }
@@ -0,0 +1,92 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.CapturedRequest;
+import java.io.PrintWriter;
+
+/** Prints a {@link CapturedRequest} as HTML, escaping everything the client sent. */
+final class RequestHtml {
+
+  private RequestHtml() {}
+
+  static void print(PrintWriter out, CapturedRequest request) {
+    printField(out, "method", request.getMethod());
+    printField(out, "request URI", request.getRequestUri());
+    printField(out, "query string", request.getQueryString());
+    printField(out, "content length", request.getContentLength());
+    printField(out, "content type", request.getContentType());
+    printField(out, "protocol", request.getProtocol());
+    printField(out, "client IP", request.getRemoteAddr());
+    printField(out, "server name", request.getServerName());
+    printField(out, "character encoding", request.getCharacterEncoding());
+
+    out.println("headers:");
+    printPairs(out, request.getHeaders());
+
+    out.println("parameters:");
+    printPairs(out, request.getParameters());
+  }
+
+  private static void printField(PrintWriter out, String label, Object value) {
+    out.print(label);
+    out.print(": ");
+    printEscaped(out, String.valueOf(value));
+    out.println("<br/>");
+  }
+
+  private static void printPairs(PrintWriter out, String[] pairs) {
+    out.println("<ul>");
+    for (int i = 0; i < pairs.length; i += 2) {
+      out.print("<li>");
+      printEscaped(out, pairs[i]);
+      out.print(": ");
+      printEscaped(out, pairs[i + 1]);
+      out.print("</li>");
+    }
+    out.println("</ul>");
+  }
+
+  /** Prints {@code text}, escaped for use in HTML text or a quoted attribute. */
+  static void printEscaped(PrintWriter out, String text) {
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      String replacement;
+      switch (text.charAt(i)) {
+        case '<':
+          replacement = "&lt;";
+          break;
+        case '>':
+          replacement = "&gt;";
+          break;
+        case '&':
+          replacement = "&amp;";
+          break;
+        case '"':
+          replacement = "&quot;";
+          break;
+        case '\'':
+          replacement = "&#39;";
+          break;
+        default:
+          continue;
+      }
+      out.write(text, start, i - start);
+      out.print(replacement);
+      start = i + 1;
+    }
+    out.write(text, start, text.length() - start);
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link RequestLog} and {@link CapturedRequest}. The log is shared
+ * by the whole JVM, so tests only look at requests they recorded themselves.
+ */
+@RunWith(JUnit4.class)
+public final class RequestLogTest {
+  private static final int THREADS = 4;
+
+  private final RequestLog log = RequestLog.getInstance();
+
+  @Test
+  public void pagesNewestFirst() {
+    long first = log.getTotalCount();
+    for (int i = 0; i < 5; i++) {
+      log.record(request("/" + i, new LinkedHashMap<>(), new LinkedHashMap<>()), 0, 0, 200);
+    }
+
+    List<CapturedRequest> newest = log.page(Long.MAX_VALUE, 3);
+    Assert.assertEquals(3, newest.size());
+    Assert.assertEquals("/4", newest.get(0).getRequestUri());
+    Assert.assertEquals(first + 2, newest.get(2).getSequence());
+
+    List<CapturedRequest> rest = log.page(newest.get(2).getSequence(), 2);
+    Assert.assertEquals("/1", rest.get(0).getRequestUri());
+    Assert.assertEquals(first, rest.get(1).getSequence());
+  }
+
+  @Test
+  public void keepsOnlyTheLatestCapacityRequests() {
+    for (int i = 0; i < RequestLog.CAPACITY + 10; i++) {
+      log.record(request("/", new LinkedHashMap<>(), new LinkedHashMap<>()), 0, 0, 200);
+    }
+
+    List<CapturedRequest> page = log.page(Long.MAX_VALUE, 2 * RequestLog.CAPACITY);
+
+    Assert.assertEquals(RequestLog.CAPACITY, page.size());
+    Assert.assertEquals(
+        log.getTotalCount() - RequestLog.CAPACITY, page.get(page.size() - 1).getSequence());
+  }
+
+  @Test
+  public void concurrentRecordsAreAllKept() throws InterruptedException {
+    HttpServletRequest request = request("/", new LinkedHashMap<>(), new LinkedHashMap<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < RequestLog.CAPACITY / THREADS; i++) {
+          log.record(request, 0, 0, 200);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    List<CapturedRequest> page = log.page(Long.MAX_VALUE, RequestLog.CAPACITY);
+    Assert.assertEquals(RequestLog.CAPACITY, page.size());
+    for (int i = 0; i < page.size(); i++) {
+      Assert.assertEquals(log.getTotalCount() - 1 - i, page.get(i).getSequence());
+    }
+  }
+
+  @Test
+  public void redactsCredentialsAndBoundsParameters() {
+    Map<String, List<String>> headers = new LinkedHashMap<>();
+    headers.put("cookie", Arrays.asList("SID=secret"));
+    headers.put("Authorization", Arrays.asList("Bearer secret"));
+    headers.put("Accept", Arrays.asList("text/html", "*/*"));
+    Map<String, String[]> parameters = new LinkedHashMap<>();
+    char[] longValue = new char[1000];
+    Arrays.fill(longValue, 'x');
+    parameters.put("long", new String[] {new String(longValue)});
+    for (int i = 0; i < 100; i++) {
+      parameters.put("p" + i, new String[] {"v" + i});
+    }
+
+    CapturedRequest captured =
+        CapturedRequest.capture(-1, 0, 0, 200, request("/", headers, parameters));
+
+    Assert.assertArrayEquals(
+        new String[] {
+          "cookie", "(redacted)", "Authorization", "(redacted)",
+          "Accept", "text/html", "Accept", "*/*"
+        },
+        captured.getHeaders());
+    String[] capturedParameters = captured.getParameters();
+    Assert.assertEquals(100, capturedParameters.length);
+    Assert.assertEquals(203, capturedParameters[1].length());
+    Assert.assertTrue(capturedParameters[1].endsWith("..."));
+    Assert.assertEquals("p48", capturedParameters[98]);
+  }
+
+  /** Returns a GET request for {@code uri} that answers any other call with null or -1. */
+  private static HttpServletRequest request(
+      String uri, Map<String, List<String>> headers, Map<String, String[]> parameters) {
+    return (HttpServletRequest) Proxy.newProxyInstance(
+        RequestLogTest.class.getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getMethod":
+              return "GET";
+            case "getRequestURI":
+              return uri;
+            case "getHeaderNames":
+              return Collections.enumeration(headers.keySet());
+            case "getHeaders":
+              return Collections.enumeration(headers.get(args[0]));
+            case "getParameterMap":
+              return parameters;
+            default:
+              return method.getReturnType() == int.class ? -1 : null;
+          }
+        });
+  }
+}
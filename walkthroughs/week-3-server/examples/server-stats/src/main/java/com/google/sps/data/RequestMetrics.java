@@ -0,0 +1,98 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts and latencies per endpoint, shared by everything on this
+ * instance. Recording a request takes a map lookup and a few atomic adds.
+ */
+public final class RequestMetrics {
+
+  private static final RequestMetrics INSTANCE = new RequestMetrics();
+
+  /**
+   * Caps the endpoints tracked, since paths come from clients. Requests to
+   * any further paths are counted under {@link #OTHER_ENDPOINT}.
+   */
+  private static final int MAX_ENDPOINTS = 100;
+  private static final String OTHER_ENDPOINT = "(other)";
+
+  private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final LongAccumulator peakActiveRequests = new LongAccumulator(Math::max, 0);
+
+  public static RequestMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /** Call when a request starts, and {@link #requestFinished} when it ends. */
+  public void requestStarted() {
+    peakActiveRequests.accumulate(activeRequests.incrementAndGet());
+  }
+
+  public void requestFinished(String endpoint, long micros, int status) {
+    activeRequests.decrementAndGet();
+
+    EndpointMetrics metrics = endpoints.get(endpoint);
+    if (metrics == null) {
+      String key = endpoints.size() < MAX_ENDPOINTS ? endpoint : OTHER_ENDPOINT;
+      metrics = endpoints.computeIfAbsent(key, unused -> new EndpointMetrics());
+    }
+    metrics.record(micros, status);
+  }
+
+  public int getActiveRequests() {
+    return activeRequests.get();
+  }
+
+  public long getPeakActiveRequests() {
+    return peakActiveRequests.get();
+  }
+
+  /** Returns the metrics of every endpoint seen so far, sorted by path. */
+  public Map<String, EndpointMetrics> getEndpoints() {
+    return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+  }
+
+  /** Counts and latencies for one endpoint. */
+  public static final class EndpointMetrics {
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private void record(long micros, int status) {
+      if (status >= 500) {
+        errors.increment();
+      }
+      latency.record(micros);
+    }
+
+    /** Returns how many requests failed with a 5xx status. */
+    public long getErrors() {
+      return errors.sum();
+    }
+
+    public LatencyHistogram.Snapshot getLatency() {
+      return latency.snapshot();
+    }
+  }
+}
@@ -14,19 +14,44 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.LatencyHistogram;
+import com.google.sps.data.RequestMetrics;
+import com.google.sps.data.RequestMetrics.EndpointMetrics;
 import com.google.sps.data.ServerStats;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Reports memory, per-endpoint request counts and latencies recorded by
+ * {@link RequestTimingFilter}, garbage collection, allocation rate and thread
+ * figures for this instance.
+ */
 @WebServlet("/server-stats")
 public final class ServerStatsServlet extends HttpServlet {
 
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  /** Sized for a few dozen endpoints, so the response buffer doesn't grow while writing. */
+  private static final int RESPONSE_BUFFER_SIZE = 32 * 1024;
+
   private final Date startTime = new Date();
+  private final RequestMetrics requestMetrics = RequestMetrics.getInstance();
+
+  /** The allocation total at the previous call, to turn the next one into a rate. */
+  private final AtomicReference<long[]> lastAllocationSample = new AtomicReference<>();
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -34,34 +59,139 @@ public final class ServerStatsServlet extends HttpServlet {
     Date currentTime = new Date();
     long maxMemory = Runtime.getRuntime().maxMemory();
     long usedMemory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
-
-    // Convert the server stats to JSON
     ServerStats serverStats = new ServerStats(startTime, currentTime, maxMemory, usedMemory);
-    String json = convertToJson(serverStats);
 
-    // Send the JSON as the response
+    // Write the server stats as JSON straight into the response
+    response.setBufferSize(RESPONSE_BUFFER_SIZE);
     response.setContentType("application/json;");
-    response.getWriter().println(json);
+    convertToJson(serverStats, response.getWriter());
   }
 
   /**
-   * Converts a ServerStats instance into a JSON string using manual String concatentation.
+   * Writes a ServerStats instance and the request, GC and thread metrics as
+   * JSON, streaming it with Gson's JsonWriter so no intermediate strings are
+   * built.
    */
-  private String convertToJson(ServerStats serverStats) {
-    String json = "{";
-    json += "\"startTime\": ";
-    json += "\"" + serverStats.getStartTime() + "\"";
-    json += ", ";
-    json += "\"currentTime\": ";
-    json += "\"" + serverStats.getCurrentTime() + "\"";
-    json += ", ";
-    json += "\"maxMemory\": ";
-    json += serverStats.getMaxMemory();
-    json += ", ";
-    json += "\"usedMemory\": ";
-    json += serverStats.getUsedMemory();
-    json += "}";
-    return json;
+  private void convertToJson(ServerStats serverStats, Writer out) throws IOException {
+    JsonWriter writer = new JsonWriter(out);
+    writer.beginObject();
+    writer.name("startTime").value(serverStats.getStartTime().toString());
+    writer.name("currentTime").value(serverStats.getCurrentTime().toString());
+    writer.name("maxMemory").value(serverStats.getMaxMemory());
+    writer.name("usedMemory").value(serverStats.getUsedMemory());
+
+    writeEndpoints(writer);
+    writeGarbageCollection(writer);
+    writeThreads(writer);
+
+    writer.endObject();
+    writer.flush();
+  }
+
+  /** Writes e.g. "endpoints": {"/data": {"count": 3, "errors": 0, "meanMillis": 1.2, ...}} */
+  private void writeEndpoints(JsonWriter writer) throws IOException {
+    writer.name("endpoints").beginObject();
+    for (Map.Entry<String, EndpointMetrics> entry : requestMetrics.getEndpoints().entrySet()) {
+      LatencyHistogram.Snapshot latency = entry.getValue().getLatency();
+
+      writer.name(entry.getKey()).beginObject();
+      writer.name("count").value(latency.getCount());
+      writer.name("errors").value(entry.getValue().getErrors());
+      writer.name("meanMillis").value(latency.getMean() / 1000);
+      for (double percentile : PERCENTILES) {
+        writer.name("p" + formatPercentile(percentile) + "Millis")
+            .value(latency.getValueAtPercentile(percentile) / 1000.0);
+      }
+      writer.name("maxMillis").value(latency.getMax() / 1000.0);
+      writer.endObject();
+    }
+    writer.endObject();
+  }
+
+  /**
+   * Writes the collections and time spent by each collector since startup,
+   * and how fast live threads have allocated since the previous call.
+   */
+  private void writeGarbageCollection(JsonWriter writer) throws IOException {
+    writer.name("garbageCollectors").beginArray();
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      writer.beginObject();
+      writer.name("name").value(collector.getName());
+      writer.name("count").value(collector.getCollectionCount());
+      writer.name("timeMillis").value(collector.getCollectionTime());
+      writer.endObject();
+    }
+    writer.endArray();
+
+    long allocatedBytes = getAllocatedBytes();
+    if (allocatedBytes < 0) {
+      return;
+    }
+    long[] sample = {System.nanoTime(), allocatedBytes};
+    long[] previous = lastAllocationSample.getAndSet(sample);
+    if (previous != null && sample[0] > previous[0]) {
+      // Threads that ended since the last sample take their totals with them,
+      // which can make the difference negative.
+      long bytes = Math.max(0, sample[1] - previous[1]);
+      double seconds = (sample[0] - previous[0]) / 1e9;
+      writer.name("allocatedBytesPerSecond").value(bytes / seconds);
+    }
+  }
+
+  /** Writes thread counts, requests in progress and the common fork-join pool's usage. */
+  private void writeThreads(JsonWriter writer) throws IOException {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    writer.name("threads").beginObject();
+    writer.name("live").value(threads.getThreadCount());
+    writer.name("peak").value(threads.getPeakThreadCount());
+    writer.name("daemon").value(threads.getDaemonThreadCount());
+    writer.name("activeRequests").value(requestMetrics.getActiveRequests());
+    writer.name("peakActiveRequests").value(requestMetrics.getPeakActiveRequests());
+
+    writer.name("forkJoinPool").beginObject();
+    writer.name("parallelism").value(pool.getParallelism());
+    writer.name("size").value(pool.getPoolSize());
+    writer.name("active").value(pool.getActiveThreadCount());
+    writer.name("queuedTasks").value(pool.getQueuedTaskCount());
+    writer.name("utilization").value((double) pool.getActiveThreadCount() / pool.getParallelism());
+    writer.endObject();
+
+    writer.endObject();
+  }
+
+  /**
+   * Returns the bytes allocated by all live threads so far, or -1 if the JVM
+   * can't tell.
+   */
+  private static long getAllocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+    if (!hotspotThreads.isThreadAllocatedMemorySupported()
+        || !hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+
+    long total = 0;
+    for (long bytes : hotspotThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+      // -1 for threads that ended while we asked.
+      if (bytes > 0) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+
+  /** Formats 50 as "50" and 99.9 as "99_9", for use in a field name. */
+  private static String formatPercentile(double percentile) {
+    String text = percentile == Math.rint(percentile)
+        ? Long.toString((long) percentile)
+        : Double.toString(percentile);
+    return text.replace('.', '_');
   }
 
   /**
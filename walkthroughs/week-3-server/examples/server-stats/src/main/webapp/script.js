@@ -30,6 +30,29 @@ function getServerStats() {
         createListElement('Max memory: ' + stats.maxMemory));
     statsListElement.appendChild(
         createListElement('Used memory: ' + stats.usedMemory));
+
+    Object.keys(stats.endpoints).forEach((path) => {
+      const endpoint = stats.endpoints[path];
+      statsListElement.appendChild(createListElement(
+          `${path}: ${endpoint.count} requests, ${endpoint.errors} errors, ` +
+          `p50 ${endpoint.p50Millis} ms, p99 ${endpoint.p99Millis} ms, ` +
+          `max ${endpoint.maxMillis} ms`));
+    });
+
+    stats.garbageCollectors.forEach((collector) => {
+      statsListElement.appendChild(createListElement(
+          `GC ${collector.name}: ${collector.count} collections, ` +
+          `${collector.timeMillis} ms`));
+    });
+    if (stats.allocatedBytesPerSecond !== undefined) {
+      statsListElement.appendChild(createListElement(
+          'Allocation rate: ' +
+          Math.round(stats.allocatedBytesPerSecond) + ' bytes/s'));
+    }
+
+    statsListElement.appendChild(createListElement(
+        `Threads: ${stats.threads.live} live, ${stats.threads.peak} peak, ` +
+        `${stats.threads.activeRequests} requests in progress`));
   });
 }
 
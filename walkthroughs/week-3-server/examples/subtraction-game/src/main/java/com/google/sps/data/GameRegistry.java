@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds one {@link SubtractionGame} per player session. Games nobody has
+ * touched for {@link #IDLE_TIMEOUT_MILLIS} are dropped, and the number of
+ * games is capped so memory stays bounded however many players show up.
+ */
+public final class GameRegistry {
+
+  private static final long IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+  private static final long SWEEP_INTERVAL_MILLIS = 60 * 1000;
+
+  /** At roughly 200 bytes per game with its map entry, about 20 MB. */
+  private static final int MAX_GAMES = 100_000;
+
+  private final Map<String, Entry> games = new ConcurrentHashMap<>();
+  private final AtomicLong nextSweepMillis = new AtomicLong();
+
+  /** Returns the session's game, starting one if it has none. */
+  public SubtractionGame get(String sessionId) {
+    long now = System.currentTimeMillis();
+    sweepIfDue(now);
+
+    Entry entry = games.get(sessionId);
+    if (entry == null) {
+      makeRoom(now);
+      entry = games.computeIfAbsent(sessionId, unused -> new Entry(new SubtractionGame(), now));
+    }
+    entry.lastAccessMillis = now;
+    return entry.game;
+  }
+
+  public int size() {
+    return games.size();
+  }
+
+  /** Drops idle games, at most once per sweep interval across all threads. */
+  private void sweepIfDue(long now) {
+    long next = nextSweepMillis.get();
+    if (now >= next && nextSweepMillis.compareAndSet(next, now + SWEEP_INTERVAL_MILLIS)) {
+      evictIdleSince(now - IDLE_TIMEOUT_MILLIS);
+    }
+  }
+
+  /**
+   * Frees a slot if the registry is full, by dropping idle games and then, if
+   * that's not enough, games idle for half as long, and so on.
+   */
+  private void makeRoom(long now) {
+    long idleMillis = IDLE_TIMEOUT_MILLIS;
+    while (games.size() >= MAX_GAMES && idleMillis > 0) {
+      evictIdleSince(now - idleMillis);
+      idleMillis /= 2;
+    }
+  }
+
+  private void evictIdleSince(long cutoffMillis) {
+    Iterator<Entry> entries = games.values().iterator();
+    while (entries.hasNext()) {
+      if (entries.next().lastAccessMillis < cutoffMillis) {
+        entries.remove();
+      }
+    }
+  }
+
+  private static final class Entry {
+    final SubtractionGame game;
+    volatile long lastAccessMillis;
+
+    /** Starts out as just accessed, so a sweep running meanwhile can't drop it right away. */
+    Entry(SubtractionGame game, long lastAccessMillis) {
+      this.game = game;
+      this.lastAccessMillis = lastAccessMillis;
+    }
+  }
+}
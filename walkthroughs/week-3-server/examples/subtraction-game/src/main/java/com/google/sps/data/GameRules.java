@@ -0,0 +1,125 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * The rules of a subtraction game: the total it starts from and the amounts a
+ * player may subtract on their turn.
+ */
+public final class GameRules {
+
+  public static final GameRules DEFAULT = new GameRules(21, new int[] {1, 2, 3});
+
+  /** Keeps a winning-move table for the largest games at about 10 MB. */
+  public static final int MAX_STARTING_TOTAL = 10_000_000;
+
+  /**
+   * Winning-move tables hold 1 + the index of a move in {@link #getMoves()}
+   * in an unsigned byte, keeping 0 for lost positions.
+   */
+  public static final int MAX_MOVES = 255;
+
+  /**
+   * Bounds the starting total times the number of moves, which is what a
+   * winning-move table costs to build: about 50 ms at this limit.
+   */
+  public static final long MAX_TABLE_WORK = 100_000_000;
+
+  private final int startingTotal;
+  private final int[] moves;
+
+  private GameRules(int startingTotal, int[] moves) {
+    this.startingTotal = startingTotal;
+    this.moves = moves;
+  }
+
+  /**
+   * Parses a starting total such as "1000000" and comma-separated moves such
+   * as "1, 3, 4".
+   *
+   * @throws IllegalArgumentException if either is missing, malformed or out of range
+   */
+  public static GameRules parse(String startingTotalText, String movesText) {
+    if (startingTotalText == null || movesText == null) {
+      throw new IllegalArgumentException("Both a starting total and moves are needed");
+    }
+    int startingTotal = Integer.parseInt(startingTotalText.trim());
+    if (startingTotal < 1 || startingTotal > MAX_STARTING_TOTAL) {
+      throw new IllegalArgumentException(
+          "The starting total must be between 1 and " + MAX_STARTING_TOTAL);
+    }
+
+    TreeSet<Integer> moves = new TreeSet<>();
+    for (String move : movesText.split(",")) {
+      int amount = Integer.parseInt(move.trim());
+      if (amount < 1 || amount > startingTotal) {
+        throw new IllegalArgumentException(
+            "Moves must be between 1 and the starting total: " + amount);
+      }
+      moves.add(amount);
+    }
+    if (moves.size() > MAX_MOVES) {
+      throw new IllegalArgumentException("At most " + MAX_MOVES + " different moves");
+    }
+    if ((long) startingTotal * moves.size() > MAX_TABLE_WORK) {
+      throw new IllegalArgumentException(
+          "The starting total times the number of moves must be at most " + MAX_TABLE_WORK);
+    }
+
+    return new GameRules(startingTotal, moves.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  public int getStartingTotal() {
+    return startingTotal;
+  }
+
+  /** Returns the allowed moves in ascending order. Don't modify the array. */
+  public int[] getMoves() {
+    return moves;
+  }
+
+  /** Returns the index of {@code amount} in {@link #getMoves()}, or -1 if it isn't allowed. */
+  public int indexOfMove(int amount) {
+    int index = Arrays.binarySearch(moves, amount);
+    return index >= 0 ? index : -1;
+  }
+
+  /** Returns whether there is any move from {@code total}, i.e. it is at least the smallest. */
+  public boolean hasMoveFrom(int total) {
+    return total >= moves[0];
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof GameRules)) {
+      return false;
+    }
+    GameRules rules = (GameRules) other;
+    return startingTotal == rules.startingTotal && Arrays.equals(moves, rules.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * startingTotal + Arrays.hashCode(moves);
+  }
+
+  @Override
+  public String toString() {
+    return "start at " + startingTotal + ", subtract " + Arrays.toString(moves);
+  }
+}
@@ -15,71 +15,171 @@
 package com.google.sps.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Class representing the subtraction game, where players take turns subtracting from 21 to reach 0.
+ * Class representing the subtraction game, where players take turns subtracting
+ * one of the allowed moves from the total to reach 0. A player who can't move
+ * loses. The computer plays perfectly from {@link WinningMoves}, and at random
+ * when every move loses anyway.
  *
- * <p>Note: The private variables in this class are converted into JSON.
+ * <p>Moves are kept as one byte each, the index of the move in the rules, and
+ * only the latest {@link #MAX_LOGGED_MOVES} are kept, so a game stays small
+ * however long it runs; the readable history is only built when asked for.
+ * Games are not thread-safe; callers sharing one must synchronize on it.
  */
 public class SubtractionGame {
 
-  /** List of descriptions of turns, e.g. "Player 1 took 3. New total: 18" */
-  private final List<String> history = new ArrayList<>();
+  private static final int MAX_LOGGED_MOVES = 256;
+
+  private GameRules rules;
+
+  /**
+   * Ring of the latest moves. Moves alternate between the player and the
+   * computer, starting with the player, so the move number says who made it.
+   */
+  private byte[] moves = new byte[8];
+  private long moveCount = 0;
 
   /** The total of the current turn. */
-  private int currentTotal = 21;
+  private int currentTotal;
 
-  /** Whether this game has ended, i.e. one of the players reached 0. */
+  /** Whether this game has ended, i.e. the last player to move reached 0 or left no move. */
   private boolean gameOver = false;
 
+  public SubtractionGame() {
+    this(GameRules.DEFAULT);
+  }
+
+  public SubtractionGame(GameRules rules) {
+    reset(rules);
+  }
+
   /** Returns whether this game has ended. */
   public boolean isGameOver() {
     return gameOver;
   }
 
-  /** Takes the player's turn, subtracting `playerChoice` from the total. */
+  public int getCurrentTotal() {
+    return currentTotal;
+  }
+
+  public GameRules getRules() {
+    return rules;
+  }
+
+  /** Starts over with a new game under the same rules. */
+  public void reset() {
+    reset(rules);
+  }
+
+  /** Starts over with a new game under the given rules. */
+  public void reset(GameRules rules) {
+    this.rules = rules;
+    moves = new byte[8];
+    moveCount = 0;
+    currentTotal = rules.getStartingTotal();
+    gameOver = false;
+  }
+
+  /** Returns whether the player may subtract {@code amount} now. */
+  public boolean isLegalMove(int amount) {
+    return !gameOver && amount <= currentTotal && rules.indexOfMove(amount) >= 0;
+  }
+
+  /**
+   * Takes the player's turn, subtracting `playerChoice` from the total, and
+   * then the computer's.
+   *
+   * @throws IllegalArgumentException if the move isn't {@linkplain #isLegalMove legal}
+   */
   public void takePlayerTurn(int playerChoice) {
-    currentTotal -= playerChoice;
-    if (currentTotal < 0) {
-      currentTotal = 0;
+    if (!isLegalMove(playerChoice)) {
+      throw new IllegalArgumentException("Not a legal move: " + playerChoice);
     }
-    logMove("Player 1", playerChoice, currentTotal);
+    move(playerChoice);
 
-    if (currentTotal == 0) {
-      // Player 1 won
-      history.add("Player 1 won!");
-      history.add("I want a rematch!");
-      gameOver = true;
-    } else {
+    if (!gameOver) {
       takeComputerTurn();
     }
   }
 
   private void takeComputerTurn() {
-    int computerChoice;
-    if (currentTotal <= 3) {
-      // If the current total is 1, 2, or 3, then the computer can win this turn
-      // by subtracting the current total.
-      computerChoice = currentTotal;
-    } else {
-      // The computer can't win this turn,
-      // so generate a random number between 1 and 3 inclusive.
-      computerChoice = 1 + (int) (Math.random() * 3);
+    // Looked up on every turn rather than kept, so the cache alone decides
+    // how many tables stay in memory.
+    int computerChoice = WinningMoves.forRules(rules).getWinningMove(currentTotal);
+    if (computerChoice == -1) {
+      // Every move loses against best play, so pick any of them and hope the
+      // player slips up.
+      int[] allowed = rules.getMoves();
+      int legalMoves = 0;
+      while (legalMoves < allowed.length && allowed[legalMoves] <= currentTotal) {
+        legalMoves++;
+      }
+      computerChoice = allowed[ThreadLocalRandom.current().nextInt(legalMoves)];
     }
+    move(computerChoice);
+  }
 
-    currentTotal -= computerChoice;
-    logMove("Computer", computerChoice, currentTotal);
+  private void move(int choice) {
+    currentTotal -= choice;
+    logMove(rules.indexOfMove(choice));
 
-    if (currentTotal == 0) {
-      history.add("Computer won!");
-      history.add("Want a rematch?");
+    // The next player loses if they can't move, which includes facing 0.
+    if (!rules.hasMoveFrom(currentTotal)) {
       gameOver = true;
     }
   }
 
-  private void logMove(String player, int choice, int newTotal) {
-    history.add(player + " subtracted " + choice);
-    history.add("New total: " + newTotal);
+  private void logMove(int moveIndex) {
+    if (moveCount == moves.length && moves.length < MAX_LOGGED_MOVES) {
+      moves = Arrays.copyOf(moves, moves.length * 2);
+    }
+    moves[(int) (moveCount % moves.length)] = (byte) moveIndex;
+    moveCount++;
+  }
+
+  /**
+   * Returns descriptions of the turns so far, e.g. "Player 1 subtracted 3",
+   * "New total: 18", replayed from the move log.
+   */
+  public List<String> getHistory() {
+    int logged = (int) Math.min(moveCount, moves.length);
+    long firstLogged = moveCount - logged;
+    int[] amounts = new int[logged];
+    int total = currentTotal;
+    for (int i = 0; i < logged; i++) {
+      amounts[i] = rules.getMoves()[moves[(int) ((firstLogged + i) % moves.length)] & 0xFF];
+      total += amounts[i];
+    }
+
+    List<String> history = new ArrayList<>(logged * 2 + 4);
+    if (firstLogged > 0) {
+      history.add(firstLogged + " earlier moves");
+      history.add("Total: " + total);
+    }
+    for (int i = 0; i < logged; i++) {
+      String player = (firstLogged + i) % 2 == 0 ? "Player 1" : "Computer";
+      total -= amounts[i];
+      history.add(player + " subtracted " + amounts[i]);
+      history.add("New total: " + total);
+    }
+
+    if (gameOver) {
+      boolean playerWon = moveCount % 2 == 1;
+      if (currentTotal > 0) {
+        history.add((playerWon ? "Computer" : "Player 1") + " can't move.");
+      }
+      if (playerWon) {
+        history.add("Player 1 won!");
+        history.add("I want a rematch!");
+      } else {
+        history.add("Computer won!");
+        history.add("Want a rematch?");
+      }
+    }
+    return history;
   }
 }
@@ -0,0 +1,141 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * For each total, whether the player about to move can force a win, and with
+ * which move. Computed once by dynamic programming from 0 upwards: a total is
+ * a win if some move reaches 0 or a total that is a loss for the opponent.
+ * A player with no move left loses.
+ *
+ * <p>Tables only depend on the set of moves, so games with the same moves
+ * share one, grown to the largest starting total asked for. After that each
+ * lookup is an array read.
+ */
+public final class WinningMoves {
+
+  /** Bounds the tables kept for recently used move sets, at one byte per total. */
+  private static final long MAX_CACHED_BYTES = 64L << 20;
+
+  private static final LinkedHashMap<MoveSet, WinningMoves> cache =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private static long cachedBytes = 0;
+
+  /** Compares the moves of two rules by value, to key the cache without boxing them. */
+  private static final class MoveSet {
+    private final int[] moves;
+
+    MoveSet(int[] moves) {
+      this.moves = moves;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof MoveSet && Arrays.equals(moves, ((MoveSet) other).moves);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(moves);
+    }
+  }
+
+  private final int[] moves;
+
+  /**
+   * For each total, 1 + the index in {@link #moves} of a winning move, or 0
+   * if every move loses against best play.
+   */
+  private final byte[] winningMoves;
+
+  private WinningMoves(int[] moves, byte[] winningMoves) {
+    this.moves = moves;
+    this.winningMoves = winningMoves;
+  }
+
+  /**
+   * Returns a table covering every total up to the rules' starting total.
+   * Games look their table up on every turn instead of keeping it, so
+   * {@link #MAX_CACHED_BYTES} bounds the memory tables take however many games
+   * there are.
+   */
+  public static WinningMoves forRules(GameRules rules) {
+    MoveSet key = new MoveSet(rules.getMoves());
+
+    synchronized (cache) {
+      WinningMoves table = cache.get(key);
+      if (table != null && table.getMaxTotal() >= rules.getStartingTotal()) {
+        return table;
+      }
+    }
+
+    // Computed outside the lock so other move sets aren't held up; two
+    // threads may compute the same table, and the larger one is kept.
+    WinningMoves computed = compute(rules.getMoves(), rules.getStartingTotal());
+    synchronized (cache) {
+      WinningMoves table = cache.get(key);
+      if (table != null && table.getMaxTotal() >= computed.getMaxTotal()) {
+        return table;
+      }
+      if (table != null) {
+        cachedBytes -= table.winningMoves.length;
+      }
+      cache.put(key, computed);
+      cachedBytes += computed.winningMoves.length;
+
+      Iterator<WinningMoves> eldest = cache.values().iterator();
+      while (cachedBytes > MAX_CACHED_BYTES && eldest.hasNext()) {
+        WinningMoves evicted = eldest.next();
+        if (evicted != computed) {
+          cachedBytes -= evicted.winningMoves.length;
+          eldest.remove();
+        }
+      }
+      return computed;
+    }
+  }
+
+  static WinningMoves compute(int[] moves, int maxTotal) {
+    byte[] winningMoves = new byte[maxTotal + 1];
+    for (int total = 1; total <= maxTotal; total++) {
+      for (int i = 0; i < moves.length && moves[i] <= total; i++) {
+        // winningMoves[0] is 0: whoever faces 0 has lost, as the other player reached it.
+        if (winningMoves[total - moves[i]] == 0) {
+          winningMoves[total] = (byte) (i + 1);
+          break;
+        }
+      }
+    }
+    return new WinningMoves(moves, winningMoves);
+  }
+
+  public int getMaxTotal() {
+    return winningMoves.length - 1;
+  }
+
+  public boolean isWinning(int total) {
+    return winningMoves[total] != 0;
+  }
+
+  /** Returns a move that wins from {@code total}, or -1 if there is none. */
+  public int getWinningMove(int total) {
+    int index = winningMoves[total] & 0xFF;
+    return index == 0 ? -1 : moves[index - 1];
+  }
+}
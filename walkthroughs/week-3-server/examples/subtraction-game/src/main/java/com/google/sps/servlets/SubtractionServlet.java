@@ -14,68 +14,109 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.GameRegistry;
+import com.google.sps.data.GameRules;
 import com.google.sps.data.SubtractionGame;
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that encapsulates the subtraction game. */
+/**
+ * Servlet that encapsulates the subtraction game. Each player gets their own
+ * game, tied to their session, and can start one with their own rules by
+ * posting a "starting-total" and comma-separated "moves".
+ */
 @WebServlet("/subtraction-game")
 public final class SubtractionServlet extends HttpServlet {
 
-  private SubtractionGame game = new SubtractionGame();
+  private final GameRegistry games = new GameRegistry();
 
+  /** Responds with e.g. {"history": ["Player 1 subtracted 3", ...], "currentTotal": 18, ...} */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    SubtractionGame game = games.get(request.getSession().getId());
+
     response.setContentType("application/json");
-    String json = new Gson().toJson(game);
-    response.getWriter().println(json);
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    synchronized (game) {
+      writer.beginObject();
+      writer.name("history").beginArray();
+      for (String line : game.getHistory()) {
+        writer.value(line);
+      }
+      writer.endArray();
+      writer.name("startingTotal").value(game.getRules().getStartingTotal());
+      writer.name("moves").beginArray();
+      for (int move : game.getRules().getMoves()) {
+        writer.value(move);
+      }
+      writer.endArray();
+      writer.name("currentTotal").value(game.getCurrentTotal());
+      writer.name("gameOver").value(game.isGameOver());
+      writer.endObject();
+    }
+    writer.flush();
   }
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    // If the user sends another POST request after the game is over, then start a new game.
-    if (game.isGameOver()) {
-      game = new SubtractionGame();
+    SubtractionGame game = games.get(request.getSession().getId());
+
+    if (request.getParameter("starting-total") != null) {
+      GameRules rules;
+      try {
+        rules = GameRules.parse(
+            request.getParameter("starting-total"), request.getParameter("moves"));
+      } catch (IllegalArgumentException e) {
+        response.setContentType("text/html");
+        response.getWriter().println(
+            "Please enter a starting total up to " + GameRules.MAX_STARTING_TOTAL
+                + " and moves like 1, 2, 3. Large totals allow fewer moves.");
+        return;
+      }
+      synchronized (game) {
+        game.reset(rules);
+      }
+      response.sendRedirect("/index.html");
+      return;
     }
 
     // Get the input from the form.
     int playerChoice = getPlayerChoice(request);
-    if (playerChoice == -1) {
-      response.setContentType("text/html");
-      response.getWriter().println("Please enter an integer between 1 and 3.");
-      return;
-    }
 
-    game.takePlayerTurn(playerChoice);
+    synchronized (game) {
+      // If the user sends another POST request after the game is over, then start a new game.
+      if (game.isGameOver()) {
+        game.reset();
+      }
+      if (!game.isLegalMove(playerChoice)) {
+        response.setContentType("text/html");
+        response.getWriter().println("Please enter one of " + Arrays.toString(
+            game.getRules().getMoves()) + ", at most " + game.getCurrentTotal() + ".");
+        return;
+      }
+      game.takePlayerTurn(playerChoice);
+    }
 
     // Redirect back to the HTML page.
     response.sendRedirect("/index.html");
   }
 
-  /** Returns the choice entered by the player, or -1 if the choice was invalid. */
+  /** Returns the choice entered by the player, or -1 if it isn't an integer. */
   private int getPlayerChoice(HttpServletRequest request) {
     // Get the input from the form.
     String playerChoiceString = request.getParameter("player-choice");
 
     // Convert the input to an int.
-    int playerChoice;
     try {
-      playerChoice = Integer.parseInt(playerChoiceString);
+      return Integer.parseInt(playerChoiceString);
     } catch (NumberFormatException e) {
       System.err.println("Could not convert to int: " + playerChoiceString);
       return -1;
     }
-
-    // Check that the input is between 1 and 3.
-    if (playerChoice < 1 || playerChoice > 3) {
-      System.err.println("Player choice is out of range: " + playerChoiceString);
-      return -1;
-    }
-
-    return playerChoice;
   }
 }
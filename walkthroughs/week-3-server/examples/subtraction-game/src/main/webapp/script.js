@@ -20,11 +20,18 @@ function getSubtractionGame() {
     const totalEl = document.getElementById('total');
     if (game.gameOver) {
       // The current game is over, show the total for the next game.
-      totalEl.innerText = 'Total: 21';
+      totalEl.innerText = 'Total: ' + game.startingTotal;
     } else {
       totalEl.innerText = 'Total: ' + game.currentTotal;
     }
 
+    document.getElementById('rules').innerText =
+        'Take turns subtracting ' + game.moves.join(', ') + ' from the total.';
+    const choiceEl = document.getElementById('player-choice');
+    choiceEl.min = game.moves[0];
+    choiceEl.max = game.moves[game.moves.length - 1];
+    choiceEl.value = game.moves[0];
+
     // Build the list of history entries.
     const historyEl = document.getElementById('history');
     game.history.forEach((line) => {
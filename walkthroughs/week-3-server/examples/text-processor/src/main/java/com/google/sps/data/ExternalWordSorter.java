@@ -0,0 +1,233 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Sorts more words than fit in memory. Words are collected up to a memory
+ * budget, then sorted and written to a temp file as a sorted run. Reading the
+ * result merges the runs, so only one word per run is in memory at a time.
+ *
+ * <p>Words sort the same way {@link java.util.Arrays#sort} sorts strings.
+ * Close the sorter to delete its temp files.
+ */
+public final class ExternalWordSorter implements Closeable {
+
+  /** Receives the sorted words in order. */
+  public interface SortedWordConsumer {
+    void accept(String word) throws IOException;
+  }
+
+  private static final long DEFAULT_MEMORY_BUDGET_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * Rough size of a String and its array beyond the characters, plus the
+   * list's reference to it.
+   */
+  private static final int WORD_OVERHEAD_BYTES = 56;
+
+  /** Runs merged at once. More runs than this are merged in several passes. */
+  private static final int MAX_MERGE_WIDTH = 64;
+
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+  private final long memoryBudgetBytes;
+  private final List<String> words = new ArrayList<>();
+  private long wordBytes;
+  /** The sorted runs that make up the words spilled so far. */
+  private final List<File> runs = new ArrayList<>();
+  /** Every temp file not yet deleted, including merge outputs still being written. */
+  private final Set<File> tempFiles = new LinkedHashSet<>();
+
+  public ExternalWordSorter() {
+    this(DEFAULT_MEMORY_BUDGET_BYTES);
+  }
+
+  public ExternalWordSorter(long memoryBudgetBytes) {
+    this.memoryBudgetBytes = memoryBudgetBytes;
+  }
+
+  public void add(char[] word, int length) throws IOException {
+    words.add(new String(word, 0, length));
+    wordBytes += 2L * length + WORD_OVERHEAD_BYTES;
+
+    if (wordBytes >= memoryBudgetBytes) {
+      spill();
+    }
+  }
+
+  /** Passes every word added so far to {@code consumer} in sorted order. Call this once. */
+  public void writeSorted(SortedWordConsumer consumer) throws IOException {
+    if (runs.isEmpty()) {
+      Collections.sort(words);
+      for (String word : words) {
+        consumer.accept(word);
+      }
+      return;
+    }
+
+    if (!words.isEmpty()) {
+      spill();
+    }
+
+    // Merge groups of runs into longer runs until one pass can merge them all.
+    while (runs.size() > MAX_MERGE_WIDTH) {
+      List<File> merged = new ArrayList<>();
+      for (int start = 0; start < runs.size(); start += MAX_MERGE_WIDTH) {
+        List<File> group = runs.subList(start, Math.min(start + MAX_MERGE_WIDTH, runs.size()));
+        File run = createRunFile();
+        merged.add(run);
+        try (DataOutputStream out = openForWriting(run)) {
+          merge(group, word -> writeWord(out, word));
+        }
+        for (File input : group) {
+          delete(input);
+        }
+      }
+      runs.clear();
+      runs.addAll(merged);
+    }
+
+    merge(runs, consumer);
+  }
+
+  /** Deletes the temp files, including any left by a merge that failed. */
+  @Override
+  public void close() {
+    for (File file : tempFiles) {
+      file.delete();
+    }
+    tempFiles.clear();
+    runs.clear();
+    words.clear();
+  }
+
+  private void spill() throws IOException {
+    Collections.sort(words);
+
+    File run = createRunFile();
+    runs.add(run);
+    try (DataOutputStream out = openForWriting(run)) {
+      for (String word : words) {
+        writeWord(out, word);
+      }
+    }
+
+    words.clear();
+    wordBytes = 0;
+  }
+
+  private static void merge(List<File> inputs, SortedWordConsumer consumer) throws IOException {
+    PriorityQueue<RunReader> queue =
+        new PriorityQueue<>(inputs.size(), Comparator.comparing(reader -> reader.current));
+    List<RunReader> readers = new ArrayList<>();
+    try {
+      for (File input : inputs) {
+        RunReader reader = new RunReader(input);
+        readers.add(reader);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        consumer.accept(reader.current);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+    } finally {
+      for (RunReader reader : readers) {
+        reader.in.close();
+      }
+    }
+  }
+
+  /**
+   * Creates a temp file for a run. It is deleted by {@link #close}, not on
+   * exit, as the JVM would keep every path it is asked to delete on exit for
+   * as long as the server runs.
+   */
+  private File createRunFile() throws IOException {
+    File run = File.createTempFile("words-", ".run");
+    tempFiles.add(run);
+    return run;
+  }
+
+  private void delete(File file) {
+    file.delete();
+    tempFiles.remove(file);
+  }
+
+  private static DataOutputStream openForWriting(File run) throws IOException {
+    return new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(run), IO_BUFFER_SIZE));
+  }
+
+  /** Stored as the length and then the UTF-16 characters, so any string survives unchanged. */
+  private static void writeWord(DataOutputStream out, String word) throws IOException {
+    out.writeInt(word.length());
+    out.writeChars(word);
+  }
+
+  /** Reads a run back one word at a time. */
+  private static final class RunReader {
+    final DataInputStream in;
+    String current;
+    private char[] chars = new char[64];
+
+    RunReader(File run) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), IO_BUFFER_SIZE));
+    }
+
+    /** Moves to the next word, or returns false at the end of the run. */
+    boolean advance() throws IOException {
+      int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException e) {
+        current = null;
+        return false;
+      }
+
+      if (chars.length < length) {
+        chars = new char[Math.max(length, chars.length * 2)];
+      }
+      for (int i = 0; i < length; i++) {
+        chars[i] = in.readChar();
+      }
+      current = new String(chars, 0, length);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,225 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The text processor's operations on comma-separated text held in memory.
+ * Large inputs are cut into chunks at commas and the chunks are processed in
+ * parallel on the common fork-join pool; small ones are done on the calling
+ * thread, where that is faster. Either way the results are the same as the
+ * single-threaded versions.
+ */
+public final class WordPipeline {
+
+  /** Below this many characters or words, one thread is faster than splitting the work. */
+  private static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private WordPipeline() {}
+
+  /**
+   * Returns the same words as {@code text.split("\\s*,\\s*")}, upper-casing
+   * each one if {@code upperCase} is set.
+   */
+  public static String[] split(String text, boolean upperCase) {
+    if (text.length() < PARALLEL_THRESHOLD) {
+      return (upperCase ? text.toUpperCase() : text).split("\\s*,\\s*");
+    }
+
+    if (text.indexOf(',') < 0) {
+      return new String[] {upperCase ? text.toUpperCase() : text};
+    }
+
+    int[] bounds = getChunkBounds(text);
+    List<List<String>> chunks = IntStream.range(0, bounds.length - 1)
+        .parallel()
+        .mapToObj(i -> splitChunk(text, bounds[i], bounds[i + 1], upperCase))
+        .collect(Collectors.toList());
+
+    int size = 0;
+    for (List<String> chunk : chunks) {
+      size += chunk.size();
+    }
+    String[] words = new String[size];
+    int index = 0;
+    for (List<String> chunk : chunks) {
+      for (String word : chunk) {
+        words[index++] = word;
+      }
+    }
+
+    // Like String.split, drop empty words at the end.
+    while (size > 0 && words[size - 1].isEmpty()) {
+      size--;
+    }
+    return size == words.length ? words : Arrays.copyOf(words, size);
+  }
+
+  /** Sorts the words in place, in parallel if there are many of them. */
+  public static void sort(String[] words) {
+    if (words.length < PARALLEL_THRESHOLD) {
+      Arrays.sort(words);
+    } else {
+      Arrays.parallelSort(words);
+    }
+  }
+
+  /**
+   * Returns the words without repeats, keeping the first of each. If the words
+   * are sorted, pass {@code sorted} so repeats can be found next to each other.
+   */
+  public static String[] distinct(String[] words, boolean sorted) {
+    if (sorted) {
+      int size = 0;
+      for (String word : words) {
+        if (size == 0 || !word.equals(words[size - 1])) {
+          words[size++] = word;
+        }
+      }
+      return Arrays.copyOf(words, size);
+    }
+
+    return Arrays.stream(words)
+        .parallel()
+        .distinct()
+        .toArray(String[]::new);
+  }
+
+  /**
+   * Counts each word. Slices of the array are counted into their own maps in
+   * parallel and the maps are merged pairwise, so threads never contend on a
+   * shared map. Counts are {@code int[1]} cells so they're updated without
+   * boxing.
+   */
+  public static Map<String, int[]> count(String[] words) {
+    if (words.length < PARALLEL_THRESHOLD) {
+      return countSlice(words, 0, words.length);
+    }
+
+    int slices = (words.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    return IntStream.range(0, slices)
+        .parallel()
+        .mapToObj(i -> countSlice(words, i * CHUNK_SIZE, Math.min((i + 1) * CHUNK_SIZE,
+            words.length)))
+        .reduce(WordPipeline::mergeCounts)
+        .get();
+  }
+
+  private static Map<String, int[]> countSlice(String[] words, int start, int end) {
+    Map<String, int[]> counts = new HashMap<>();
+    for (int i = start; i < end; i++) {
+      int[] count = counts.get(words[i]);
+      if (count == null) {
+        counts.put(words[i], new int[] {1});
+      } else {
+        count[0]++;
+      }
+    }
+    return counts;
+  }
+
+  /** Adds the smaller map into the larger one and returns the larger one. */
+  private static Map<String, int[]> mergeCounts(Map<String, int[]> a, Map<String, int[]> b) {
+    Map<String, int[]> into = a.size() >= b.size() ? a : b;
+    Map<String, int[]> from = into == a ? b : a;
+    for (Map.Entry<String, int[]> entry : from.entrySet()) {
+      int[] count = into.get(entry.getKey());
+      if (count == null) {
+        into.put(entry.getKey(), entry.getValue());
+      } else {
+        count[0] += entry.getValue()[0];
+      }
+    }
+    return into;
+  }
+
+  /**
+   * Returns chunk boundaries: 0, the index of a comma roughly every
+   * {@link #CHUNK_SIZE} characters, and the text's length.
+   */
+  private static int[] getChunkBounds(String text) {
+    List<Integer> bounds = new ArrayList<>();
+    bounds.add(0);
+    int next = CHUNK_SIZE;
+    while (next < text.length()) {
+      int comma = text.indexOf(',', next);
+      if (comma < 0) {
+        break;
+      }
+      bounds.add(comma);
+      next = comma + CHUNK_SIZE;
+    }
+    bounds.add(text.length());
+
+    return bounds.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Splits text[start, end) into words. Every chunk after the first starts at
+   * a comma, and every chunk but the last ends at one, so whitespace is only
+   * trimmed next to commas, as the regex does.
+   */
+  private static List<String> splitChunk(String text, int start, int end, boolean upperCase) {
+    List<String> words = new ArrayList<>();
+    int wordStart = start;
+    if (start > 0) {
+      // Skip the comma the chunk starts on; the previous chunk ended there.
+      wordStart = skipWhitespace(text, start + 1, end);
+    }
+
+    int comma;
+    while ((comma = text.indexOf(',', wordStart)) >= 0 && comma < end) {
+      words.add(word(text, wordStart, trimWhitespace(text, wordStart, comma), upperCase));
+      wordStart = skipWhitespace(text, comma + 1, end);
+    }
+
+    int wordEnd = end < text.length() ? trimWhitespace(text, wordStart, end) : end;
+    words.add(word(text, wordStart, wordEnd, upperCase));
+    return words;
+  }
+
+  private static String word(String text, int start, int end, boolean upperCase) {
+    String word = text.substring(start, end);
+    return upperCase ? word.toUpperCase() : word;
+  }
+
+  private static int skipWhitespace(String text, int start, int end) {
+    while (start < end && isRegexWhitespace(text.charAt(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  private static int trimWhitespace(String text, int start, int end) {
+    while (end > start && isRegexWhitespace(text.charAt(end - 1))) {
+      end--;
+    }
+    return end;
+  }
+
+  /** The characters {@code \s} matches. */
+  private static boolean isRegexWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Splits comma-separated text into words as it is read, without holding more
+ * than the current word in memory. Whitespace around each word is dropped,
+ * and so are empty words.
+ *
+ * <p>This is not quite what {@link WordPipeline#split} does for the form. That
+ * keeps empty words between commas, like {@code String.split}, and doesn't
+ * trim the start or end of the text, so a file's final newline would end up
+ * in its last word. Streamed input is usually a file, so it is cleaned up
+ * instead. Upper-casing also goes a character at a time here, so the few
+ * characters that upper-case to more than one, like the German sharp s, stay
+ * as they are.
+ */
+public final class WordTokenizer {
+
+  /** Receives each word. The array is reused for the next word, so copy what you keep. */
+  public interface WordConsumer {
+    void accept(char[] word, int length) throws IOException;
+  }
+
+  /** Longer words are rejected rather than buffered. */
+  public static final int MAX_WORD_LENGTH = 64 * 1024;
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private WordTokenizer() {}
+
+  /**
+   * Reads {@code reader} to the end and passes each word to {@code consumer},
+   * upper-cased if {@code upperCase} is set. Returns the number of words.
+   *
+   * @throws IllegalArgumentException if a word is longer than {@link #MAX_WORD_LENGTH}
+   */
+  public static long tokenize(Reader reader, boolean upperCase, WordConsumer consumer)
+      throws IOException {
+    char[] buffer = new char[BUFFER_SIZE];
+    char[] word = new char[64];
+    // Characters in the word so far, and how many of them are left without trailing whitespace.
+    int length = 0;
+    int trimmedLength = 0;
+    long count = 0;
+
+    int read;
+    while ((read = reader.read(buffer)) != -1) {
+      for (int i = 0; i < read; i++) {
+        char c = buffer[i];
+
+        if (c == ',') {
+          if (trimmedLength > 0) {
+            consumer.accept(word, trimmedLength);
+            count++;
+          }
+          length = 0;
+          trimmedLength = 0;
+          continue;
+        }
+
+        boolean isWhitespace = Character.isWhitespace(c);
+        if (isWhitespace && length == 0) {
+          continue;
+        }
+
+        if (length == word.length) {
+          if (length == MAX_WORD_LENGTH) {
+            throw new IllegalArgumentException(
+                "Words can't be longer than " + MAX_WORD_LENGTH + " characters");
+          }
+          word = Arrays.copyOf(word, Math.min(length * 2, MAX_WORD_LENGTH));
+        }
+        word[length++] = upperCase ? Character.toUpperCase(c) : c;
+        if (!isWhitespace) {
+          trimmedLength = length;
+        }
+      }
+    }
+
+    if (trimmedLength > 0) {
+      consumer.accept(word, trimmedLength);
+      count++;
+    }
+    return count;
+  }
+}
@@ -14,42 +14,199 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.ExternalWordSorter;
+import com.google.sps.data.WordPipeline;
+import com.google.sps.data.WordTokenizer;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
+import java.util.Map;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that processes text. */
+/**
+ * Servlet that processes text.
+ *
+ * <p>Besides the form, it accepts the words as the raw request body with the
+ * options in the query string, e.g.
+ * {@code curl -H 'Content-Type: text/plain' --data-binary @words.txt '/text?sort=true'}.
+ * Those are processed as they stream in, so inputs can be far bigger than the
+ * heap. Streamed words are split by {@link WordTokenizer}, which unlike the
+ * form also trims the ends of the text and drops empty words.
+ *
+ * <p>The {@code dedup} option drops repeated words and {@code count} returns
+ * each distinct word with its count instead, e.g. "[one=2, two=1]", in
+ * alphabetical order. In streaming mode both imply {@code sort}.
+ */
 @WebServlet("/text")
 public final class TextProcessorServlet extends HttpServlet {
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (!isFormSubmission(request)) {
+      processStream(request, response);
+      return;
+    }
+
     // Get the input from the form.
     String text = getParameter(request, "text-input", "");
     boolean upperCase = Boolean.parseBoolean(getParameter(request, "upper-case", "false"));
     boolean sort = Boolean.parseBoolean(getParameter(request, "sort", "false"));
+    boolean dedup = Boolean.parseBoolean(getParameter(request, "dedup", "false"));
+    boolean count = Boolean.parseBoolean(getParameter(request, "count", "false"));
 
-    // Convert the text to upper case.
-    if (upperCase) {
-      text = text.toUpperCase();
-    }
+    // Break the text into individual words, converting them to upper case.
+    String[] words = WordPipeline.split(text, upperCase);
 
-    // Break the text into individual words.
-    String[] words = text.split("\\s*,\\s*");
+    response.setContentType("text/html;");
+
+    // Count the words.
+    if (count) {
+      Map<String, int[]> counts = WordPipeline.count(words);
+      String[] distinctWords = counts.keySet().toArray(new String[0]);
+      WordPipeline.sort(distinctWords);
+
+      WordListWriter out = new WordListWriter(response.getWriter());
+      for (String word : distinctWords) {
+        out.write(word + "=" + counts.get(word)[0]);
+      }
+      out.close();
+      return;
+    }
 
     // Sort the words.
     if (sort) {
-      Arrays.sort(words);
+      WordPipeline.sort(words);
+    }
+
+    // Remove repeated words.
+    if (dedup) {
+      words = WordPipeline.distinct(words, sort);
     }
 
     // Respond with the result.
-    response.setContentType("text/html;");
     response.getWriter().println(Arrays.toString(words));
   }
 
+  private static boolean isFormSubmission(HttpServletRequest request) {
+    String contentType = request.getContentType();
+    return contentType != null
+        && (contentType.startsWith("application/x-www-form-urlencoded")
+            || contentType.startsWith("multipart/form-data"));
+  }
+
+  /**
+   * Tokenizes the request body as it is read and writes the words out in the
+   * same format as the form. Unsorted words are written as they are found;
+   * sorted ones go through an {@link ExternalWordSorter}.
+   */
+  private void processStream(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    boolean upperCase = Boolean.parseBoolean(getParameter(request, "upper-case", "false"));
+    boolean dedup = Boolean.parseBoolean(getParameter(request, "dedup", "false"));
+    boolean count = Boolean.parseBoolean(getParameter(request, "count", "false"));
+    boolean sort =
+        dedup || count || Boolean.parseBoolean(getParameter(request, "sort", "false"));
+    if (request.getCharacterEncoding() == null) {
+      request.setCharacterEncoding("UTF-8");
+    }
+
+    response.setContentType("text/plain; charset=UTF-8");
+    WordListWriter out = new WordListWriter(response.getWriter());
+
+    try {
+      if (sort) {
+        try (ExternalWordSorter sorter = new ExternalWordSorter()) {
+          WordTokenizer.tokenize(request.getReader(), upperCase, sorter::add);
+          if (dedup || count) {
+            WordRunWriter runs = new WordRunWriter(out, count);
+            sorter.writeSorted(runs::accept);
+            runs.finish();
+          } else {
+            sorter.writeSorted(out::write);
+          }
+        }
+      } else {
+        WordTokenizer.tokenize(request.getReader(), upperCase, out::write);
+      }
+    } catch (IllegalArgumentException e) {
+      if (response.isCommitted()) {
+        throw new IOException(e);
+      }
+      response.reset();
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    out.close();
+  }
+
+  /** Collapses repeats in sorted words, writing each word once, with its count if asked. */
+  private static final class WordRunWriter {
+    private final WordListWriter out;
+    private final boolean withCounts;
+    private String word;
+    private int count;
+
+    WordRunWriter(WordListWriter out, boolean withCounts) {
+      this.out = out;
+      this.withCounts = withCounts;
+    }
+
+    void accept(String next) throws IOException {
+      if (next.equals(word)) {
+        count++;
+        return;
+      }
+      finish();
+      word = next;
+      count = 1;
+    }
+
+    /** Writes the last word. */
+    void finish() throws IOException {
+      if (word != null) {
+        out.write(withCounts ? word + "=" + count : word);
+        word = null;
+      }
+    }
+  }
+
+  /** Writes words in the format of {@link Arrays#toString(Object[])}, e.g. "[one, two]". */
+  private static final class WordListWriter {
+    private final Writer out;
+    private boolean isFirst = true;
+
+    WordListWriter(Writer out) throws IOException {
+      this.out = out;
+      out.write('[');
+    }
+
+    void write(char[] word, int length) throws IOException {
+      writeSeparator();
+      out.write(word, 0, length);
+    }
+
+    void write(String word) throws IOException {
+      writeSeparator();
+      out.write(word);
+    }
+
+    private void writeSeparator() throws IOException {
+      if (!isFirst) {
+        out.write(", ");
+      }
+      isFirst = false;
+    }
+
+    void close() throws IOException {
+      out.write("]\n");
+      out.flush();
+    }
+  }
+
   /**
    * @return the request parameter, or the default value if the parameter
    *         was not specified by the client
@@ -0,0 +1,106 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ExternalWordSorter}, against {@link Arrays#sort}. */
+@RunWith(JUnit4.class)
+public final class ExternalWordSorterTest {
+
+  @Test
+  public void sortsInMemory() throws IOException {
+    assertSorts(randomWords(new Random(1), 1_000), 16 * 1024 * 1024);
+  }
+
+  @Test
+  public void sortsAcrossSpilledRuns() throws IOException {
+    // About 100 words per run, so a few dozen runs merged in one pass.
+    assertSorts(randomWords(new Random(2), 5_000), 8 * 1024);
+  }
+
+  @Test
+  public void mergesManyRunsInSeveralPasses() throws IOException {
+    // A few words per run, so hundreds of runs.
+    assertSorts(randomWords(new Random(3), 3_000), 256);
+  }
+
+  @Test
+  public void keepsEveryCharacter() throws IOException {
+    assertSorts(new String[] {"b", "", "\u00e9t\u00e9", "a\u0000b", "\ud83d\ude00", "a"}, 1);
+  }
+
+  @Test
+  public void closeDeletesTheRuns() throws IOException {
+    Set<String> before = runFiles();
+
+    ExternalWordSorter sorter = new ExternalWordSorter(256);
+    for (String word : randomWords(new Random(4), 1_000)) {
+      sorter.add(word.toCharArray(), word.length());
+    }
+    Assert.assertNotEquals(before, runFiles());
+
+    sorter.close();
+    Assert.assertEquals(before, runFiles());
+  }
+
+  private static void assertSorts(String[] words, long memoryBudgetBytes) throws IOException {
+    List<String> sorted = new ArrayList<>();
+    try (ExternalWordSorter sorter = new ExternalWordSorter(memoryBudgetBytes)) {
+      for (String word : words) {
+        sorter.add(word.toCharArray(), word.length());
+      }
+      sorter.writeSorted(sorted::add);
+    }
+
+    String[] expected = words.clone();
+    Arrays.sort(expected);
+    Assert.assertEquals(Arrays.asList(expected), sorted);
+  }
+
+  private static String[] randomWords(Random random, int count) {
+    String[] words = new String[count];
+    for (int i = 0; i < count; i++) {
+      char[] word = new char[1 + random.nextInt(12)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) ('a' + random.nextInt(26));
+      }
+      words[i] = new String(word);
+    }
+    return words;
+  }
+
+  /** Returns the names of the sorters' run files in the temp directory. */
+  private static Set<String> runFiles() {
+    Set<String> names = new HashSet<>();
+    String[] all = new File(System.getProperty("java.io.tmpdir")).list();
+    for (String name : all == null ? new String[0] : all) {
+      if (name.startsWith("words-") && name.endsWith(".run")) {
+        names.add(name);
+      }
+    }
+    return names;
+  }
+}
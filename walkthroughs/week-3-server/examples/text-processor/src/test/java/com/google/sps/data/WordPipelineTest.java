@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link WordPipeline}, against the single-threaded versions it replaces. */
+@RunWith(JUnit4.class)
+public final class WordPipelineTest {
+  private static final String[] SEPARATORS = {",", ", ", " ,", " \t,\n ", ",,", ", ,"};
+
+  @Test
+  public void splitMatchesRegexSplit() {
+    String[] texts = {
+      "", "one", "b, a ,c", " padded , words ", "trailing,,, ,", ",leading", ",,,",
+      randomText(new Random(1), 200_000), randomText(new Random(2), 200_000) + ", ,  ,",
+    };
+
+    for (String text : texts) {
+      Assert.assertArrayEquals(text.split("\\s*,\\s*"), WordPipeline.split(text, false));
+      Assert.assertArrayEquals(
+          text.toUpperCase().split("\\s*,\\s*"), WordPipeline.split(text, true));
+    }
+  }
+
+  @Test
+  public void splitLargeTextWithoutCommas() {
+    char[] word = new char[100_000];
+    Arrays.fill(word, 'x');
+    String text = " " + new String(word) + " ";
+
+    Assert.assertArrayEquals(new String[] {text.toUpperCase()}, WordPipeline.split(text, true));
+  }
+
+  @Test
+  public void distinctKeepsFirstOfEachWord() {
+    String[] words = WordPipeline.split(randomText(new Random(3), 300_000), false);
+    String[] expected = new LinkedHashSet<>(Arrays.asList(words)).toArray(new String[0]);
+
+    Assert.assertArrayEquals(expected, WordPipeline.distinct(words.clone(), false));
+
+    WordPipeline.sort(words);
+    Arrays.sort(expected);
+    Assert.assertArrayEquals(expected, WordPipeline.distinct(words, true));
+  }
+
+  @Test
+  public void countMatchesSequentialCount() {
+    String[] words = WordPipeline.split(randomText(new Random(4), 2_000_000), false);
+    Map<String, Integer> expected = new HashMap<>();
+    for (String word : words) {
+      expected.merge(word, 1, Integer::sum);
+    }
+
+    Map<String, int[]> counts = WordPipeline.count(words);
+
+    Assert.assertEquals(expected.size(), counts.size());
+    for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+      Assert.assertEquals(entry.getKey(), (long) entry.getValue(), counts.get(entry.getKey())[0]);
+    }
+  }
+
+  @Test
+  public void splitAndSortMatchesSingleThreadedChain() {
+    String text = randomText(new Random(5), 2_000_000);
+
+    Assert.assertArrayEquals(sequentialSplitAndSort(text), pipelineSplitAndSort(text));
+  }
+
+  /** What TextProcessorServlet did before the pipeline. */
+  private static String[] sequentialSplitAndSort(String text) {
+    String[] words = text.toUpperCase().split("\\s*,\\s*");
+    Arrays.sort(words);
+    return words;
+  }
+
+  private static String[] pipelineSplitAndSort(String text) {
+    String[] words = WordPipeline.split(text, true);
+    WordPipeline.sort(words);
+    return words;
+  }
+
+  /** Returns about {@code length} chars of short words, with whitespace around some commas. */
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder(length + 16);
+    while (text.length() < length) {
+      int wordLength = 1 + random.nextInt(6);
+      for (int i = 0; i < wordLength; i++) {
+        text.append((char) ('a' + random.nextInt(8)));
+      }
+      text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+    }
+    return text.toString();
+  }
+}
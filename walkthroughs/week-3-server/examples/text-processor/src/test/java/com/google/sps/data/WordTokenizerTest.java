@@ -0,0 +1,94 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sps.data;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link WordTokenizer}. */
+@RunWith(JUnit4.class)
+public final class WordTokenizerTest {
+
+  @Test
+  public void trimsWordsAndDropsEmptyOnes() throws IOException {
+    Assert.assertEquals(
+        Arrays.asList("a", "b c", "d"), tokenize(" a , b c,,\n, \t d ,\n", false));
+    Assert.assertEquals(Arrays.asList(), tokenize("", false));
+    Assert.assertEquals(Arrays.asList(), tokenize(" , ,\n", false));
+  }
+
+  @Test
+  public void upperCasesEachWord() throws IOException {
+    Assert.assertEquals(Arrays.asList("ONE", "TWO"), tokenize("one, Two", true));
+  }
+
+  @Test
+  public void returnsTheWordCount() throws IOException {
+    long count = WordTokenizer.tokenize(new StringReader("a,,b,c"), false, (word, length) -> {});
+
+    Assert.assertEquals(3, count);
+  }
+
+  @Test
+  public void matchesSplitAndTrimAcrossBufferBoundaries() throws IOException {
+    Random random = new Random(1);
+    StringBuilder text = new StringBuilder();
+    while (text.length() < 100_000) {
+      for (int i = random.nextInt(40); i >= 0; i--) {
+        text.append((char) ('a' + random.nextInt(26)));
+      }
+      text.append(random.nextBoolean() ? "," : " ,\n ");
+    }
+
+    List<String> expected = new ArrayList<>();
+    for (String word : text.toString().split(",")) {
+      if (!word.trim().isEmpty()) {
+        expected.add(word.trim());
+      }
+    }
+
+    Assert.assertEquals(expected, tokenize(text.toString(), false));
+  }
+
+  @Test
+  public void acceptsTheLongestWord() throws IOException {
+    char[] word = new char[WordTokenizer.MAX_WORD_LENGTH];
+    Arrays.fill(word, 'x');
+
+    Assert.assertEquals(Arrays.asList(new String(word)), tokenize(new String(word), false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsLongerWords() throws IOException {
+    char[] word = new char[WordTokenizer.MAX_WORD_LENGTH + 1];
+    Arrays.fill(word, 'x');
+
+    tokenize(new String(word), false);
+  }
+
+  private static List<String> tokenize(String text, boolean upperCase) throws IOException {
+    List<String> words = new ArrayList<>();
+    WordTokenizer.tokenize(new StringReader(text), upperCase,
+        (word, length) -> words.add(new String(word, 0, length)));
+    return words;
+  }
+}
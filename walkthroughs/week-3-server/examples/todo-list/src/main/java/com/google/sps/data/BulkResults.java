@@ -0,0 +1,32 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.IOException;
+
+/**
+ * Receives the outcome of each item of a bulk {@link TaskStore} operation.
+ * Items are reported in input order, a chunk at a time, as soon as their
+ * chunk is done.
+ */
+public interface BulkResults {
+
+  void succeeded(int index, long id) throws IOException;
+
+  void failed(int index, String message) throws IOException;
+
+  /** Called after each chunk, so results can be flushed to the client. */
+  default void chunkDone() throws IOException {}
+}
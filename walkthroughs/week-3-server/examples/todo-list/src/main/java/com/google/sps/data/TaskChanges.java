@@ -0,0 +1,64 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The tasks created and deleted since a client last synced. The client passes
+ * {@code syncedAt} as {@code since} next time. If {@code reset} is true there
+ * were too many changes, or the client is too far behind, and it should
+ * reload the whole list instead.
+ */
+public final class TaskChanges {
+
+  private final List<Task> tasks;
+  private final List<Long> deleted;
+  private final long syncedAt;
+  private final boolean reset;
+
+  public TaskChanges(List<Task> tasks, List<Long> deleted, long syncedAt) {
+    this(tasks, deleted, syncedAt, false);
+  }
+
+  private TaskChanges(List<Task> tasks, List<Long> deleted, long syncedAt, boolean reset) {
+    this.tasks = tasks;
+    this.deleted = deleted;
+    this.syncedAt = syncedAt;
+    this.reset = reset;
+  }
+
+  /** Tells the client to reload everything, then sync from {@code syncedAt}. */
+  public static TaskChanges reset(long syncedAt) {
+    return new TaskChanges(Collections.emptyList(), Collections.emptyList(), syncedAt, true);
+  }
+
+  public List<Task> getTasks() {
+    return tasks;
+  }
+
+  public List<Long> getDeleted() {
+    return deleted;
+  }
+
+  public long getSyncedAt() {
+    return syncedAt;
+  }
+
+  public boolean isReset() {
+    return reset;
+  }
+}
@@ -0,0 +1,47 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.List;
+
+/**
+ * A page of tasks, newest first, and the cursor of the next page if there is
+ * one. {@code syncedAt} is where a client that shows this page can start
+ * syncing from.
+ */
+public final class TaskPage {
+
+  private final List<Task> tasks;
+  private final String cursor;
+  private final long syncedAt;
+
+  public TaskPage(List<Task> tasks, String cursor, long syncedAt) {
+    this.tasks = tasks;
+    this.cursor = cursor;
+    this.syncedAt = syncedAt;
+  }
+
+  public List<Task> getTasks() {
+    return tasks;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public long getSyncedAt() {
+    return syncedAt;
+  }
+}
@@ -0,0 +1,664 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.CompositeFilterOperator;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads and writes tasks for every servlet on this instance, through one
+ * shared {@link DatastoreService}.
+ *
+ * <p>Deleting a task leaves a "TaskTombstone" entity with the same ID behind,
+ * so clients that sync with {@link #changesSince} hear about deletes as well as
+ * new tasks. Tombstones are purged after {@link #TOMBSTONE_RETENTION_MILLIS};
+ * clients that are further behind than that are told to reload.
+ *
+ * <p>The newest tasks and recent tombstones are kept in memory and reloaded
+ * every few seconds, so the first page and most syncs never reach Datastore.
+ * Writes made on this instance are applied to that window straight away.
+ */
+public final class TaskStore {
+
+  private static final TaskStore INSTANCE = new TaskStore(
+      DatastoreServiceFactory.getDatastoreService(),
+      DatastoreServiceFactory.getAsyncDatastoreService());
+
+  /** Newest tasks kept in memory. */
+  private static final int WINDOW_SIZE = 200;
+
+  /** How long the window is used before it is reloaded to pick up other instances' writes. */
+  private static final long WINDOW_TTL_MILLIS = 5 * 1000;
+
+  /** How far back the window keeps tombstones. */
+  private static final long TOMBSTONE_WINDOW_MILLIS = 10 * 60 * 1000;
+  private static final int MAX_WINDOW_TOMBSTONES = 1000;
+
+  private static final long TOMBSTONE_RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+  private static final long PURGE_INTERVAL_MILLIS = 60 * 60 * 1000;
+  private static final int PURGE_BATCH_SIZE = 500;
+
+  /**
+   * Syncs look this much further back than the client asked, to cover clock
+   * skew between instances and queries that don't see a write yet. Clients
+   * apply changes by ID, so seeing one twice is harmless.
+   */
+  private static final long SYNC_MARGIN_MILLIS = 5 * 1000;
+
+  /** Past this many changes, a client is better off reloading. */
+  private static final int MAX_CHANGES = 500;
+
+  /** Datastore's limit on an indexed string property, in UTF-8 bytes. */
+  public static final int MAX_TITLE_BYTES = 1500;
+
+  /** Datastore's limit on entities per put or delete. */
+  private static final int BULK_CHUNK_SIZE = 500;
+  private static final int MAX_CHUNKS_IN_FLIGHT = 8;
+
+  private final DatastoreService datastore;
+  private final AsyncDatastoreService asyncDatastore;
+  private final Object reloadLock = new Object();
+  private final AtomicLong nextPurgeMillis = new AtomicLong();
+
+  // The window, guarded by this.
+  private List<Task> newestTasks = new ArrayList<>();
+  private boolean hasOlderTasks;
+  /** Keyed by task ID, so recording a delete doesn't scan the others. */
+  private Map<Long, Tombstone> tombstones = new LinkedHashMap<>();
+  /** The window holds every tombstone deleted after this time. */
+  private long tombstonesFrom;
+  private long loadedAt = Long.MIN_VALUE;
+
+  /** Writes from this instance, replayed over a reload in case its queries missed them. */
+  private final Deque<LocalWrite> recentWrites = new ArrayDeque<>();
+
+  TaskStore(DatastoreService datastore, AsyncDatastoreService asyncDatastore) {
+    this.datastore = datastore;
+    this.asyncDatastore = asyncDatastore;
+  }
+
+  public static TaskStore getInstance() {
+    return INSTANCE;
+  }
+
+  public Task create(String title) {
+    long timestamp = System.currentTimeMillis();
+
+    Entity taskEntity = new Entity("Task");
+    taskEntity.setProperty("title", title);
+    taskEntity.setProperty("timestamp", timestamp);
+    datastore.put(taskEntity);
+
+    Task task = new Task(taskEntity.getKey().getId(), title, timestamp);
+    synchronized (this) {
+      applyCreate(task);
+      recentWrites.add(new LocalWrite(timestamp, task, 0));
+      trimRecentWrites(timestamp);
+    }
+    return task;
+  }
+
+  /** Deletes a task and records its tombstone, in one transaction. */
+  public void delete(long id) {
+    long now = System.currentTimeMillis();
+
+    Entity tombstone = new Entity("TaskTombstone", id);
+    tombstone.setProperty("deletedAt", now);
+
+    Transaction txn = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      datastore.delete(txn, KeyFactory.createKey("Task", id));
+      datastore.put(txn, tombstone);
+      txn.commit();
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+
+    synchronized (this) {
+      applyDelete(id, now);
+      recentWrites.add(new LocalWrite(now, null, id));
+      trimRecentWrites(now);
+    }
+
+    purgeTombstonesIfDue(now);
+  }
+
+  /** Returns whether {@code title} can be stored: it is present and fits an indexed property. */
+  public static boolean isValidTitle(String title) {
+    return title != null && title.getBytes(StandardCharsets.UTF_8).length <= MAX_TITLE_BYTES;
+  }
+
+  /** Returns whether {@code id} can be the ID of a stored task. */
+  public static boolean isValidId(long id) {
+    return id > 0;
+  }
+
+  /**
+   * Creates a task for each title, which must all be {@linkplain #isValidTitle
+   * valid}. Titles are put in chunks, with several chunks in flight at once,
+   * and each chunk's results are reported as soon as it and the chunks before
+   * it are done. A failed chunk doesn't stop the rest.
+   *
+   * <p>Each chunk's tasks get the time the chunk is put as their timestamp,
+   * like a single {@link #create}, so none are dated in the future and a sync
+   * made during the import still sees the later chunks. Tasks sharing a
+   * timestamp are paged by ID, which the page cursor carries.
+   */
+  public void createAll(List<String> titles, BulkResults results) throws IOException {
+    Deque<PendingChunk<List<Key>>> inFlight = new ArrayDeque<>();
+    int next = 0;
+
+    while (next < titles.size() || !inFlight.isEmpty()) {
+      while (next < titles.size() && inFlight.size() < MAX_CHUNKS_IN_FLIGHT) {
+        int end = Math.min(next + BULK_CHUNK_SIZE, titles.size());
+        long timestamp = System.currentTimeMillis();
+        List<Entity> entities = new ArrayList<>();
+        for (String title : titles.subList(next, end)) {
+          Entity taskEntity = new Entity("Task");
+          taskEntity.setProperty("title", title);
+          taskEntity.setProperty("timestamp", timestamp);
+          entities.add(taskEntity);
+        }
+        inFlight.add(new PendingChunk<>(next, end, timestamp, asyncDatastore.put(entities)));
+        next = end;
+      }
+
+      PendingChunk<List<Key>> chunk = inFlight.remove();
+      List<Key> keys;
+      try {
+        keys = await(chunk.future);
+      } catch (ExecutionException e) {
+        reportFailure(chunk, e, results);
+        continue;
+      }
+
+      synchronized (this) {
+        for (int i = 0; i < keys.size(); i++) {
+          Task task = new Task(keys.get(i).getId(), titles.get(chunk.start + i), chunk.timestamp);
+          applyCreate(task);
+          recentWrites.add(new LocalWrite(chunk.timestamp, task, 0));
+        }
+        trimRecentWrites(System.currentTimeMillis());
+      }
+      for (int i = 0; i < keys.size(); i++) {
+        results.succeeded(chunk.start + i, keys.get(i).getId());
+      }
+      results.chunkDone();
+    }
+  }
+
+  /**
+   * Deletes the tasks with these IDs, which must all be {@linkplain #isValidId
+   * valid}, leaving tombstones behind. Each chunk's
+   * tombstones are put before its tasks are deleted, so a task is never gone
+   * without a tombstone. Reports results like {@link #createAll}.
+   */
+  public void deleteAll(List<Long> ids, BulkResults results) throws IOException {
+    long now = System.currentTimeMillis();
+    Deque<PendingChunk<List<Key>>> inFlight = new ArrayDeque<>();
+    int next = 0;
+
+    while (next < ids.size() || !inFlight.isEmpty()) {
+      while (next < ids.size() && inFlight.size() < MAX_CHUNKS_IN_FLIGHT) {
+        int end = Math.min(next + BULK_CHUNK_SIZE, ids.size());
+        List<Entity> tombstones = new ArrayList<>();
+        for (long id : ids.subList(next, end)) {
+          Entity tombstone = new Entity("TaskTombstone", id);
+          tombstone.setProperty("deletedAt", now);
+          tombstones.add(tombstone);
+        }
+        inFlight.add(new PendingChunk<>(next, end, now, asyncDatastore.put(tombstones)));
+        next = end;
+      }
+
+      // Start the deletes of every chunk whose tombstones are in, not just the first one's.
+      for (PendingChunk<List<Key>> chunk : inFlight) {
+        if (chunk.deletion == null && chunk.future.isDone()) {
+          startDeletion(chunk, ids);
+        }
+      }
+
+      PendingChunk<List<Key>> chunk = inFlight.remove();
+      try {
+        if (chunk.deletion == null) {
+          await(chunk.future);
+          startDeletion(chunk, ids);
+        }
+        await(chunk.deletion);
+      } catch (ExecutionException e) {
+        reportFailure(chunk, e, results);
+        continue;
+      }
+
+      List<Long> deleted = ids.subList(chunk.start, chunk.end);
+      synchronized (this) {
+        for (long id : deleted) {
+          applyDelete(id, now);
+          recentWrites.add(new LocalWrite(now, null, id));
+        }
+        trimRecentWrites(System.currentTimeMillis());
+      }
+      for (int i = chunk.start; i < chunk.end; i++) {
+        results.succeeded(i, ids.get(i));
+      }
+      results.chunkDone();
+    }
+
+    purgeTombstonesIfDue(now);
+  }
+
+  /** Deletes a chunk's tasks once its tombstones are stored, unless storing them failed. */
+  private void startDeletion(PendingChunk<List<Key>> chunk, List<Long> ids) {
+    try {
+      await(chunk.future);
+    } catch (ExecutionException | IOException e) {
+      // Left for the caller to report when it reaches this chunk.
+      return;
+    }
+
+    List<Key> keys = new ArrayList<>();
+    for (long id : ids.subList(chunk.start, chunk.end)) {
+      keys.add(KeyFactory.createKey("Task", id));
+    }
+    chunk.deletion = asyncDatastore.delete(keys);
+  }
+
+  private static void reportFailure(PendingChunk<?> chunk, ExecutionException e,
+      BulkResults results) throws IOException {
+    String message = String.valueOf(e.getCause().getMessage());
+    for (int i = chunk.start; i < chunk.end; i++) {
+      results.failed(i, message);
+    }
+    results.chunkDone();
+  }
+
+  private static <T> T await(Future<T> future) throws ExecutionException, IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing tasks", e);
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} tasks, newest first, starting after
+   * {@code cursor} or from the newest task if it is null.
+   *
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  public TaskPage list(int limit, String cursor) {
+    long[] after = cursor == null ? null : decodeCursor(cursor);
+    ensureFresh();
+
+    synchronized (this) {
+      int start = after == null ? 0 : indexAfter(after[0], after[1]);
+      if (start + limit <= newestTasks.size() || !hasOlderTasks) {
+        int end = Math.min(start + limit, newestTasks.size());
+        List<Task> tasks = new ArrayList<>(newestTasks.subList(start, end));
+        boolean hasMore = end < newestTasks.size() || hasOlderTasks;
+        String nextCursor = hasMore ? encodeCursor(tasks.get(tasks.size() - 1)) : null;
+        return new TaskPage(tasks, nextCursor, loadedAt);
+      }
+    }
+
+    return queryPage(limit, after);
+  }
+
+  /** Returns the tasks created and deleted since {@code since}, in milliseconds. */
+  public TaskChanges changesSince(long since) {
+    long now = System.currentTimeMillis();
+    if (since < now - TOMBSTONE_RETENTION_MILLIS) {
+      return TaskChanges.reset(now);
+    }
+
+    long from = since - SYNC_MARGIN_MILLIS;
+    ensureFresh();
+
+    synchronized (this) {
+      boolean hasAllTasks = !hasOlderTasks || (!newestTasks.isEmpty()
+          && newestTasks.get(newestTasks.size() - 1).getTimestamp() <= from);
+      if (hasAllTasks && from >= tombstonesFrom) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = newestTasks.size() - 1; i >= 0; i--) {
+          if (newestTasks.get(i).getTimestamp() > from) {
+            tasks.add(newestTasks.get(i));
+          }
+        }
+        List<Long> deleted = new ArrayList<>();
+        for (Tombstone tombstone : tombstones.values()) {
+          if (tombstone.deletedAt > from) {
+            deleted.add(tombstone.id);
+          }
+        }
+        // Other instances' writes since the load aren't in the window yet.
+        return tasks.size() + deleted.size() > MAX_CHANGES
+            ? TaskChanges.reset(now)
+            : new TaskChanges(tasks, deleted, loadedAt);
+      }
+    }
+
+    return queryChanges(from, now);
+  }
+
+  /**
+   * Reads a page from Datastore. After a cursor, it first reads the rest of
+   * the tasks sharing the cursor's timestamp, by ID, and then the older ones,
+   * so a page never has to skip past a large import's tasks one by one.
+   */
+  private TaskPage queryPage(int limit, long[] after) {
+    long now = System.currentTimeMillis();
+    List<Task> tasks = new ArrayList<>();
+
+    if (after != null) {
+      Query sameTimestamp = new Query("Task")
+          .setFilter(CompositeFilterOperator.and(
+              new FilterPredicate("timestamp", FilterOperator.EQUAL, after[0]),
+              new FilterPredicate(Entity.KEY_RESERVED_PROPERTY, FilterOperator.GREATER_THAN,
+                  KeyFactory.createKey("Task", after[1]))))
+          .addSort(Entity.KEY_RESERVED_PROPERTY);
+      addTasks(sameTimestamp, limit + 1, tasks);
+    }
+
+    if (tasks.size() <= limit) {
+      Query older = new Query("Task").addSort("timestamp", SortDirection.DESCENDING);
+      if (after != null) {
+        older.setFilter(new FilterPredicate("timestamp", FilterOperator.LESS_THAN, after[0]));
+      }
+      addTasks(older, limit + 1 - tasks.size(), tasks);
+    }
+
+    boolean hasMore = tasks.size() > limit;
+    if (hasMore) {
+      tasks.remove(limit);
+    }
+    return new TaskPage(tasks, hasMore ? encodeCursor(tasks.get(tasks.size() - 1)) : null, now);
+  }
+
+  private void addTasks(Query query, int limit, List<Task> tasks) {
+    for (Entity entity : datastore.prepare(query).asList(FetchOptions.Builder.withLimit(limit))) {
+      tasks.add(toTask(entity));
+    }
+  }
+
+  private TaskChanges queryChanges(long from, long now) {
+    Query taskQuery = new Query("Task")
+        .setFilter(new FilterPredicate("timestamp", FilterOperator.GREATER_THAN, from))
+        .addSort("timestamp", SortDirection.ASCENDING);
+    Query tombstoneQuery = new Query("TaskTombstone")
+        .setFilter(new FilterPredicate("deletedAt", FilterOperator.GREATER_THAN, from));
+
+    // Start both queries before reading either, so they run in parallel.
+    FetchOptions options = FetchOptions.Builder.withLimit(MAX_CHANGES + 1);
+    Iterator<Entity> taskResults = datastore.prepare(taskQuery).asIterator(options);
+    Iterator<Entity> tombstoneResults = datastore.prepare(tombstoneQuery).asIterator(options);
+
+    List<Task> tasks = new ArrayList<>();
+    while (taskResults.hasNext()) {
+      tasks.add(toTask(taskResults.next()));
+    }
+    List<Long> deleted = new ArrayList<>();
+    while (tombstoneResults.hasNext()) {
+      deleted.add(tombstoneResults.next().getKey().getId());
+    }
+
+    if (tasks.size() + deleted.size() > MAX_CHANGES) {
+      return TaskChanges.reset(now);
+    }
+    return new TaskChanges(tasks, deleted, now);
+  }
+
+  private synchronized boolean isFresh(long now) {
+    return now - loadedAt < WINDOW_TTL_MILLIS;
+  }
+
+  /** Reloads the window if it is stale. Only one thread reloads; the rest wait for it. */
+  private void ensureFresh() {
+    if (isFresh(System.currentTimeMillis())) {
+      return;
+    }
+
+    synchronized (reloadLock) {
+      long now = System.currentTimeMillis();
+      if (isFresh(now)) {
+        return;
+      }
+
+      Query taskQuery = new Query("Task").addSort("timestamp", SortDirection.DESCENDING);
+      Query tombstoneQuery = new Query("TaskTombstone")
+          .setFilter(new FilterPredicate(
+              "deletedAt", FilterOperator.GREATER_THAN, now - TOMBSTONE_WINDOW_MILLIS))
+          .addSort("deletedAt", SortDirection.DESCENDING);
+      Iterator<Entity> taskResults = datastore.prepare(taskQuery)
+          .asIterator(FetchOptions.Builder.withLimit(WINDOW_SIZE + 1));
+      Iterator<Entity> tombstoneResults = datastore.prepare(tombstoneQuery)
+          .asIterator(FetchOptions.Builder.withLimit(MAX_WINDOW_TOMBSTONES));
+
+      List<Task> loadedTasks = new ArrayList<>();
+      while (taskResults.hasNext()) {
+        loadedTasks.add(toTask(taskResults.next()));
+      }
+      boolean loadedHasOlder = loadedTasks.size() > WINDOW_SIZE;
+      if (loadedHasOlder) {
+        loadedTasks.remove(WINDOW_SIZE);
+      }
+
+      List<Tombstone> loadedTombstones = new ArrayList<>();
+      while (tombstoneResults.hasNext()) {
+        Entity entity = tombstoneResults.next();
+        loadedTombstones.add(
+            new Tombstone(entity.getKey().getId(), (long) entity.getProperty("deletedAt")));
+      }
+      long loadedTombstonesFrom = now - TOMBSTONE_WINDOW_MILLIS;
+      if (loadedTombstones.size() == MAX_WINDOW_TOMBSTONES) {
+        // Only the newest ones fit; the window covers from the oldest of those.
+        loadedTombstonesFrom = loadedTombstones.get(loadedTombstones.size() - 1).deletedAt;
+      }
+
+      // Oldest first, so the window drops the oldest when it is full.
+      Map<Long, Tombstone> tombstonesById = new LinkedHashMap<>();
+      for (int i = loadedTombstones.size() - 1; i >= 0; i--) {
+        tombstonesById.put(loadedTombstones.get(i).id, loadedTombstones.get(i));
+      }
+
+      synchronized (this) {
+        newestTasks = loadedTasks;
+        hasOlderTasks = loadedHasOlder;
+        tombstones = tombstonesById;
+        tombstonesFrom = loadedTombstonesFrom;
+
+        trimRecentWrites(now);
+        for (LocalWrite write : recentWrites) {
+          if (write.created != null) {
+            applyCreate(write.created);
+          } else {
+            applyDelete(write.deletedId, write.time);
+          }
+        }
+
+        loadedAt = now;
+      }
+    }
+  }
+
+  /** Adds a task to the window in query order, unless it is there already. */
+  private void applyCreate(Task task) {
+    int index = indexAfter(task.getTimestamp(), task.getId() - 1);
+    if (index < newestTasks.size() && newestTasks.get(index).getId() == task.getId()) {
+      return;
+    }
+    if (index == newestTasks.size() && hasOlderTasks) {
+      // Older than everything in the window, so it belongs to a later page.
+      return;
+    }
+
+    newestTasks.add(index, task);
+    if (newestTasks.size() > WINDOW_SIZE) {
+      newestTasks.remove(WINDOW_SIZE);
+      hasOlderTasks = true;
+    }
+  }
+
+  private void applyDelete(long id, long deletedAt) {
+    newestTasks.removeIf(task -> task.getId() == id);
+    tombstones.putIfAbsent(id, new Tombstone(id, deletedAt));
+
+    if (tombstones.size() > MAX_WINDOW_TOMBSTONES) {
+      // Syncs from before the dropped tombstone now go to Datastore.
+      Iterator<Tombstone> oldest = tombstones.values().iterator();
+      tombstonesFrom = Math.max(tombstonesFrom, oldest.next().deletedAt);
+      oldest.remove();
+    }
+  }
+
+  /**
+   * Forgets local writes old enough for every query to see. Called on writes
+   * as well as reloads, so an instance that only writes doesn't keep them all.
+   */
+  private void trimRecentWrites(long now) {
+    while (!recentWrites.isEmpty() && recentWrites.peek().time < now - SYNC_MARGIN_MILLIS) {
+      recentWrites.remove();
+    }
+  }
+
+  /**
+   * Returns the index of the first task in the window that comes after
+   * (timestamp, id) in query order: newest first, then by ascending ID.
+   */
+  private int indexAfter(long timestamp, long id) {
+    int low = 0;
+    int high = newestTasks.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      Task task = newestTasks.get(middle);
+      boolean isAfter = task.getTimestamp() < timestamp
+          || (task.getTimestamp() == timestamp && task.getId() > id);
+      if (isAfter) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /** Deletes tombstones past their retention, at most once per interval across threads. */
+  private void purgeTombstonesIfDue(long now) {
+    long next = nextPurgeMillis.get();
+    if (now < next || !nextPurgeMillis.compareAndSet(next, now + PURGE_INTERVAL_MILLIS)) {
+      return;
+    }
+
+    Query query = new Query("TaskTombstone")
+        .setFilter(new FilterPredicate(
+            "deletedAt", FilterOperator.LESS_THAN, now - TOMBSTONE_RETENTION_MILLIS))
+        .setKeysOnly();
+    List<Key> keys = new ArrayList<>();
+    for (Entity entity : datastore.prepare(query)
+        .asIterable(FetchOptions.Builder.withLimit(PURGE_BATCH_SIZE))) {
+      keys.add(entity.getKey());
+    }
+    datastore.delete(keys);
+  }
+
+  private static Task toTask(Entity entity) {
+    long id = entity.getKey().getId();
+    String title = (String) entity.getProperty("title");
+    long timestamp = (long) entity.getProperty("timestamp");
+
+    return new Task(id, title, timestamp);
+  }
+
+  /** Cursors point just past a task, as "timestamp:id". */
+  private static String encodeCursor(Task task) {
+    return task.getTimestamp() + ":" + task.getId();
+  }
+
+  private static long[] decodeCursor(String cursor) {
+    String[] parts = cursor.split(":");
+    if (parts.length != 2) {
+      throw new IllegalArgumentException("Malformed cursor: " + cursor);
+    }
+    return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+  }
+
+  /** A chunk of a bulk operation: items [start, end) and the RPCs writing them. */
+  private static final class PendingChunk<T> {
+    final int start;
+    final int end;
+    /** When the chunk's tasks were created or deleted. */
+    final long timestamp;
+    final Future<T> future;
+
+    /** For deletes, started once {@link #future} has stored the tombstones. */
+    Future<Void> deletion;
+
+    PendingChunk(int start, int end, long timestamp, Future<T> future) {
+      this.start = start;
+      this.end = end;
+      this.timestamp = timestamp;
+      this.future = future;
+    }
+  }
+
+  private static final class Tombstone {
+    final long id;
+    final long deletedAt;
+
+    Tombstone(long id, long deletedAt) {
+      this.id = id;
+      this.deletedAt = deletedAt;
+    }
+  }
+
+  /** A task created or deleted on this instance. */
+  private static final class LocalWrite {
+    final long time;
+    final Task created;
+    final long deletedId;
+
+    LocalWrite(long time, Task created, long deletedId) {
+      this.time = time;
+      this.created = created;
+      this.deletedId = deletedId;
+    }
+  }
+}
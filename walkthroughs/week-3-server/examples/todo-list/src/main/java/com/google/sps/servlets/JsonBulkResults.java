@@ -0,0 +1,64 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.BulkResults;
+import java.io.IOException;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streams bulk results to the client as a JSON array with one object per item,
+ * e.g. [{"index": 0, "id": 123}, {"index": 1, "error": "..."}]
+ */
+final class JsonBulkResults implements BulkResults {
+
+  private final HttpServletResponse response;
+  private final JsonWriter writer;
+
+  JsonBulkResults(HttpServletResponse response) throws IOException {
+    this.response = response;
+    response.setContentType("application/json");
+    this.writer = new JsonWriter(response.getWriter());
+    writer.beginArray();
+  }
+
+  @Override
+  public void succeeded(int index, long id) throws IOException {
+    writer.beginObject();
+    writer.name("index").value(index);
+    writer.name("id").value(id);
+    writer.endObject();
+  }
+
+  @Override
+  public void failed(int index, String message) throws IOException {
+    writer.beginObject();
+    writer.name("index").value(index);
+    writer.name("error").value(message);
+    writer.endObject();
+  }
+
+  @Override
+  public void chunkDone() throws IOException {
+    writer.flush();
+    response.flushBuffer();
+  }
+
+  void close() throws IOException {
+    writer.endArray();
+    writer.flush();
+  }
+}
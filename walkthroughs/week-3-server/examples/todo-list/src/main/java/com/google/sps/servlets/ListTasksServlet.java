@@ -14,46 +14,56 @@
 
 package com.google.sps.servlets;
 
-import com.google.appengine.api.datastore.DatastoreService;
-import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.gson.Gson;
-import com.google.sps.data.Task;
+import com.google.sps.data.TaskStore;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet responsible for listing tasks. */
+/**
+ * Servlet responsible for listing tasks.
+ *
+ * <p>Returns a page of tasks, newest first, as
+ * {"tasks": [...], "cursor": "...", "syncedAt": ...}. Pass {@code cursor} back
+ * to get the next page; it is missing on the last one. With
+ * {@code since=<syncedAt>} it returns only what changed since a previous sync
+ * instead, as
+ * {"tasks": [...], "deleted": [ids], "syncedAt": ..., "reset": false}.
+ */
 @WebServlet("/list-tasks")
 public class ListTasksServlet extends HttpServlet {
 
+  private static final int DEFAULT_LIMIT = 50;
+  private static final int MAX_LIMIT = 200;
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Query query = new Query("Task").addSort("timestamp", SortDirection.DESCENDING);
-
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    PreparedQuery results = datastore.prepare(query);
-
-    List<Task> tasks = new ArrayList<>();
-    for (Entity entity : results.asIterable()) {
-      long id = entity.getKey().getId();
-      String title = (String) entity.getProperty("title");
-      long timestamp = (long) entity.getProperty("timestamp");
+    String limitParameter = request.getParameter("limit");
+    String sinceParameter = request.getParameter("since");
 
-      Task task = new Task(id, title, timestamp);
-      tasks.add(task);
+    Object result;
+    try {
+      if (sinceParameter != null) {
+        result = TaskStore.getInstance().changesSince(Long.parseLong(sinceParameter));
+      } else {
+        int limit = limitParameter == null ? DEFAULT_LIMIT : Integer.parseInt(limitParameter);
+        if (limit < 1 || limit > MAX_LIMIT) {
+          response.sendError(
+              HttpServletResponse.SC_BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+          return;
+        }
+        result = TaskStore.getInstance().list(limit, request.getParameter("cursor"));
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
     }
 
     Gson gson = new Gson();
 
     response.setContentType("application/json;");
-    response.getWriter().println(gson.toJson(tasks));
+    response.getWriter().println(gson.toJson(result));
   }
 }
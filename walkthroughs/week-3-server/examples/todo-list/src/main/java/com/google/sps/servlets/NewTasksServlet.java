@@ -0,0 +1,67 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.sps.data.TaskStore;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet responsible for creating many tasks at once. Takes a JSON array of
+ * titles as the request body and streams back one result per title.
+ */
+@WebServlet("/new-tasks")
+public class NewTasksServlet extends HttpServlet {
+
+  /** Keeps a request well inside the App Engine request deadline. */
+  private static final int MAX_TASKS = 20_000;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String[] titles;
+    try {
+      titles = new Gson().fromJson(request.getReader(), String[].class);
+    } catch (JsonParseException e) {
+      titles = null;
+    }
+    if (titles == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a JSON array of titles");
+      return;
+    }
+    if (titles.length > MAX_TASKS) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "At most " + MAX_TASKS + " tasks per request");
+      return;
+    }
+    // Checked before any result is written, so a bad title can't cut the response short.
+    for (int i = 0; i < titles.length; i++) {
+      if (!TaskStore.isValidTitle(titles[i])) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Title " + i
+            + " is missing or longer than " + TaskStore.MAX_TITLE_BYTES + " bytes");
+        return;
+      }
+    }
+
+    JsonBulkResults results = new JsonBulkResults(response);
+    TaskStore.getInstance().createAll(Arrays.asList(titles), results);
+    results.close();
+  }
+}
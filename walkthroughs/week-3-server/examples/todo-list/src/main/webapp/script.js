@@ -12,20 +12,86 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
-/** Fetches tasks from the server and adds them to the DOM. */
+/* Cursor of the next page of tasks, or null if every task is loaded. */
+let nextCursor = null;
+
+/* Passed as since= to only fetch what changed after the last sync. */
+let syncedAt = null;
+
+const SYNC_INTERVAL_MS = 15000;
+
+/** Fetches the first page of tasks and keeps the list in sync after that. */
 function loadTasks() {
-  fetch('/list-tasks').then(response => response.json()).then((tasks) => {
+  document.getElementById('task-list').innerHTML = '';
+  nextCursor = null;
+  syncedAt = null;
+  loadMoreTasks();
+}
+
+/** Fetches the next page of tasks from the server and adds them to the DOM. */
+function loadMoreTasks() {
+  const params = new URLSearchParams();
+  if (nextCursor) {
+    params.append('cursor', nextCursor);
+  }
+
+  fetch(`/list-tasks?${params}`).then(response => response.json()).then((page) => {
     const taskListElement = document.getElementById('task-list');
-    tasks.forEach((task) => {
-      taskListElement.appendChild(createTaskElement(task));
-    })
+    page.tasks.forEach((task) => {
+      if (!document.getElementById(taskElementId(task.id))) {
+        taskListElement.appendChild(createTaskElement(task));
+      }
+    });
+
+    if (syncedAt === null) {
+      syncedAt = page.syncedAt;
+    }
+    nextCursor = page.cursor || null;
+    document.getElementById('load-more').hidden = !nextCursor;
   });
 }
 
+/** Applies the tasks created and deleted since the last sync. */
+function syncTasks() {
+  const params = new URLSearchParams({since: syncedAt});
+  fetch(`/list-tasks?${params}`).then(response => response.json()).then((changes) => {
+    if (changes.reset) {
+      loadTasks();
+      return;
+    }
+
+    const taskListElement = document.getElementById('task-list');
+    changes.tasks.forEach((task) => {
+      if (!document.getElementById(taskElementId(task.id))) {
+        taskListElement.prepend(createTaskElement(task));
+      }
+    });
+    changes.deleted.forEach((id) => {
+      const taskElement = document.getElementById(taskElementId(id));
+      if (taskElement) {
+        taskElement.remove();
+      }
+    });
+
+    syncedAt = changes.syncedAt;
+  });
+}
+
+setInterval(() => {
+  if (syncedAt !== null) {
+    syncTasks();
+  }
+}, SYNC_INTERVAL_MS);
+
+function taskElementId(id) {
+  return `task-${id}`;
+}
+
 /** Creates an element that represents a task, including its delete button. */
 function createTaskElement(task) {
   const taskElement = document.createElement('li');
   taskElement.className = 'task';
+  taskElement.id = taskElementId(task.id);
 
   const titleElement = document.createElement('span');
   titleElement.innerText = task.title;
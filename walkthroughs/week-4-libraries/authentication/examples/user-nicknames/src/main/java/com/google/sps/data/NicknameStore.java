@@ -0,0 +1,160 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Users' nicknames, stored as "UserInfo" entities keyed by user ID, with a
+ * bounded in-memory cache in front so most page views don't reach
+ * Datastore at all.
+ *
+ * <p>The cache also remembers users who have no nickname. It is per
+ * instance and only updated by writes made on this instance, so entries
+ * expire after {@link #TTL_MILLIS} to bound how long a change made on
+ * another instance can go unseen.
+ */
+public final class NicknameStore {
+
+  private static final String KIND = "UserInfo";
+
+  private static final int MAX_CACHED_USERS = 10_000;
+  private static final long TTL_MILLIS = 60_000;
+
+  private static final NicknameStore instance = new NicknameStore();
+
+  private final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+
+  /** Least recently used first. Guarded by itself. */
+  private final Map<String, CachedNickname> cache =
+      new LinkedHashMap<String, CachedNickname>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedNickname> eldest) {
+          return size() > MAX_CACHED_USERS;
+        }
+      };
+
+  private NicknameStore() {}
+
+  public static NicknameStore getInstance() {
+    return instance;
+  }
+
+  /** Returns the nickname of the user with {@code id}, or null if they haven't set one. */
+  public String get(String id) {
+    long now = System.currentTimeMillis();
+    CachedNickname cached = getCached(id, now);
+    if (cached != null) {
+      return cached.nickname;
+    }
+
+    String nickname;
+    try {
+      nickname = (String) datastore.get(KeyFactory.createKey(KIND, id)).getProperty("nickname");
+    } catch (EntityNotFoundException e) {
+      nickname = null;
+    }
+    cacheLoaded(id, nickname, now);
+    return nickname;
+  }
+
+  /**
+   * Returns the nicknames of the users with the given IDs, keyed by ID, for
+   * rendering lists of many users' content. Users without a nickname are
+   * left out. Whatever isn't cached is read with a single batch get.
+   */
+  public Map<String, String> getAll(Collection<String> ids) {
+    long now = System.currentTimeMillis();
+    Map<String, String> nicknames = new HashMap<>();
+    List<Key> missing = new ArrayList<>();
+    for (String id : ids) {
+      CachedNickname cached = getCached(id, now);
+      if (cached == null) {
+        missing.add(KeyFactory.createKey(KIND, id));
+      } else if (cached.nickname != null) {
+        nicknames.put(id, cached.nickname);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      Map<Key, Entity> entities = datastore.get(missing);
+      for (Key key : missing) {
+        Entity entity = entities.get(key);
+        String nickname = entity == null ? null : (String) entity.getProperty("nickname");
+        cacheLoaded(key.getName(), nickname, now);
+        if (nickname != null) {
+          nicknames.put(key.getName(), nickname);
+        }
+      }
+    }
+    return nicknames;
+  }
+
+  /** Sets the nickname of the user with {@code id}, creating or replacing their entity. */
+  public void put(String id, String nickname) {
+    Entity entity = new Entity(KIND, id);
+    entity.setProperty("id", id);
+    entity.setProperty("nickname", nickname);
+    // The put() function automatically inserts new data or updates existing data based on ID
+    datastore.put(entity);
+
+    CachedNickname written = new CachedNickname(nickname, System.currentTimeMillis());
+    synchronized (cache) {
+      cache.put(id, written);
+    }
+  }
+
+  private CachedNickname getCached(String id, long now) {
+    synchronized (cache) {
+      CachedNickname cached = cache.get(id);
+      return cached != null && now - cached.loadedMillis < TTL_MILLIS ? cached : null;
+    }
+  }
+
+  /**
+   * Caches a nickname read from Datastore at {@code readMillis}, unless a
+   * write or a later read already cached a newer one while it was in flight.
+   */
+  private void cacheLoaded(String id, String nickname, long readMillis) {
+    synchronized (cache) {
+      CachedNickname cached = cache.get(id);
+      if (cached == null || cached.loadedMillis < readMillis) {
+        cache.put(id, new CachedNickname(nickname, readMillis));
+      }
+    }
+  }
+
+  private static final class CachedNickname {
+    /** Null if the user has no nickname. */
+    final String nickname;
+    final long loadedMillis;
+
+    CachedNickname(String nickname, long loadedMillis) {
+      this.nickname = nickname;
+      this.loadedMillis = loadedMillis;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+/** The size of the buckets a range of sightings is rolled up into. */
+public enum Granularity {
+  YEAR(DateTimeFormatter.ofPattern("yyyy")) {
+    @Override
+    public LocalDate truncate(LocalDate date) {
+      return date.withDayOfYear(1);
+    }
+
+    @Override
+    public LocalDate next(LocalDate start) {
+      return start.plusYears(1);
+    }
+  },
+
+  MONTH(DateTimeFormatter.ofPattern("yyyy-MM")) {
+    @Override
+    public LocalDate truncate(LocalDate date) {
+      return date.withDayOfMonth(1);
+    }
+
+    @Override
+    public LocalDate next(LocalDate start) {
+      return start.plusMonths(1);
+    }
+  },
+
+  /** ISO weeks, which start on Monday. Labeled with the date of that Monday. */
+  WEEK(DateTimeFormatter.ISO_LOCAL_DATE) {
+    @Override
+    public LocalDate truncate(LocalDate date) {
+      return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    @Override
+    public LocalDate next(LocalDate start) {
+      return start.plusWeeks(1);
+    }
+  };
+
+  private final DateTimeFormatter labelFormat;
+
+  Granularity(DateTimeFormatter labelFormat) {
+    this.labelFormat = labelFormat;
+  }
+
+  /** Returns the first day of the bucket {@code date} falls in. */
+  public abstract LocalDate truncate(LocalDate date);
+
+  /** Returns the first day of the bucket after the one starting on {@code start}. */
+  public abstract LocalDate next(LocalDate start);
+
+  /** Returns the label of the bucket starting on {@code start}, e.g. "2017" or "2017-03". */
+  public String label(LocalDate start) {
+    return labelFormat.format(start);
+  }
+
+  /** Parses a granularity parameter such as "month", ignoring case. */
+  public static Granularity parse(String name) {
+    return valueOf(name.trim().toUpperCase());
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Sighting counts per day, stored as a running total so the number of
+ * sightings in any range of days is a subtraction of two array entries.
+ *
+ * <p>The totals are kept for every day from the first record to the last, so
+ * looking up a day is an array index rather than a search. That is about 8
+ * bytes per day, or 3 KB per year of data.
+ */
+public final class SightingSeries {
+
+  private final long firstDay;
+
+  /** {@code cumulative[i]} is the number of sightings before day {@code firstDay + i}. */
+  private final long[] cumulative;
+
+  private SightingSeries(long firstDay, long[] cumulative) {
+    this.firstDay = firstDay;
+    this.cumulative = cumulative;
+  }
+
+  public boolean isEmpty() {
+    return cumulative.length == 1;
+  }
+
+  /** Returns the day of the first record. Only valid if the series isn't empty. */
+  public LocalDate getFirstDate() {
+    return LocalDate.ofEpochDay(firstDay);
+  }
+
+  /** Returns the day of the last record. Only valid if the series isn't empty. */
+  public LocalDate getLastDate() {
+    return LocalDate.ofEpochDay(firstDay + cumulative.length - 2);
+  }
+
+  /** Returns the number of sightings from {@code start} up to but not including {@code end}. */
+  public long count(LocalDate start, LocalDate end) {
+    return cumulativeBefore(end.toEpochDay()) - cumulativeBefore(start.toEpochDay());
+  }
+
+  private long cumulativeBefore(long day) {
+    long index = day - firstDay;
+    if (index <= 0) {
+      return 0;
+    }
+    if (index >= cumulative.length) {
+      return cumulative[cumulative.length - 1];
+    }
+    return cumulative[(int) index];
+  }
+
+  /** Collects records in any order and turns them into a {@link SightingSeries}. */
+  public static final class Builder {
+
+    /** Each record packed as day in the high half and count in the low half, so they sort by day. */
+    private long[] records = new long[64];
+    private int size;
+
+    /** Adds {@code count} sightings on {@code date}. A date may be added more than once. */
+    public Builder add(LocalDate date, int count) {
+      if (count < 0) {
+        throw new IllegalArgumentException("Negative sighting count on " + date);
+      }
+      long day = date.toEpochDay();
+      if (day < Integer.MIN_VALUE || day > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Date out of range: " + date);
+      }
+
+      if (size == records.length) {
+        records = Arrays.copyOf(records, size * 2);
+      }
+      records[size++] = (day << 32) | count;
+      return this;
+    }
+
+    public SightingSeries build() {
+      if (size == 0) {
+        return new SightingSeries(0, new long[1]);
+      }
+
+      long[] sorted = Arrays.copyOf(records, size);
+      Arrays.sort(sorted);
+
+      long firstDay = sorted[0] >> 32;
+      long lastDay = sorted[size - 1] >> 32;
+      long days = lastDay - firstDay + 1;
+      if (days >= Integer.MAX_VALUE) {
+        throw new IllegalStateException("Records span too many days: " + days);
+      }
+
+      long[] cumulative = new long[(int) days + 1];
+      int record = 0;
+      for (int i = 0; i < days; i++) {
+        long total = cumulative[i];
+        while (record < size && (sorted[record] >> 32) == firstDay + i) {
+          total += (int) sorted[record];
+          record++;
+        }
+        cumulative[i + 1] = total;
+      }
+
+      return new SightingSeries(firstDay, cumulative);
+    }
+  }
+}
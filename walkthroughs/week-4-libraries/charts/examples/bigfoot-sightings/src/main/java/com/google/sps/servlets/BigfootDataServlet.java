@@ -14,42 +14,179 @@
 
 package com.google.sps.servlets;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.Granularity;
+import com.google.sps.data.PrecompressedJson;
+import com.google.sps.data.SightingSeries;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
 import java.util.Scanner;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns bigfoot data as a JSON object, e.g. {"2017": 52, "2018": 34}] */
+/**
+ * Returns bigfoot data as a JSON object, e.g. {"2017": 52, "2018": 34}
+ *
+ * <p>Optional {@code from} and {@code to} parameters limit the range, both
+ * inclusive and written as 2017, 2017-03 or 2017-03-14. A {@code granularity}
+ * parameter of year, month or week changes the buckets, e.g.
+ * {"2017-03": 4, "2017-04": 7}. Weeks are labeled with their Monday.
+ */
 @WebServlet("/bigfoot-data")
 public class BigfootDataServlet extends HttpServlet {
 
-  private LinkedHashMap<Integer, Integer> bigfootSightings = new LinkedHashMap<>();
+  private static final String DATA_PATH = "/WEB-INF/bigfoot-sightings-by-year.csv";
 
+  private SightingSeries bigfootSightings;
+
+  /** The response without parameters, serialized once since the sightings never change. */
+  private PrecompressedJson allYearsJson;
+
+  /**
+   * Reads the sightings CSV. Each line has a date and a count, where the date
+   * can be a year, a month or a day, so finer-grained records can be mixed in
+   * with the yearly ones. Coarser records count as the first day of their
+   * period, so they only make sense at that granularity or above.
+   */
   @Override
-  public void init() {
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream(
-        "/WEB-INF/bigfoot-sightings-by-year.csv"));
+  public void init() throws ServletException {
+    SightingSeries.Builder builder = new SightingSeries.Builder();
+    Scanner scanner = new Scanner(getServletContext().getResourceAsStream(DATA_PATH));
     while (scanner.hasNextLine()) {
       String line = scanner.nextLine();
       String[] cells = line.split(",");
 
-      Integer year = Integer.valueOf(cells[0]);
-      Integer sightings = Integer.valueOf(cells[1]);
+      LocalDate date = parseStart(cells[0]);
+      int sightings = Integer.parseInt(cells[1]);
 
-      bigfootSightings.put(year, sightings);
+      builder.add(date, sightings);
     }
     scanner.close();
+    bigfootSightings = builder.build();
+
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    try {
+      Writer writer = new OutputStreamWriter(json, StandardCharsets.UTF_8);
+      if (!bigfootSightings.isEmpty()) {
+        writeRollup(writer, bigfootSightings.getFirstDate(), bigfootSightings.getLastDate(),
+            Granularity.YEAR);
+      } else {
+        writer.write("{}");
+      }
+      writer.close();
+
+      long lastModified =
+          getServletContext().getResource(DATA_PATH).openConnection().getLastModified();
+      allYearsJson = PrecompressedJson.of(json.toByteArray(), lastModified);
+    } catch (IOException e) {
+      throw new ServletException("Could not serialize the bigfoot sightings", e);
+    }
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String fromParameter = request.getParameter("from");
+    String toParameter = request.getParameter("to");
+    String granularityParameter = request.getParameter("granularity");
+    if (fromParameter == null && toParameter == null && granularityParameter == null) {
+      allYearsJson.write(request, response);
+      return;
+    }
+
+    if (bigfootSightings.isEmpty()) {
+      response.setContentType("application/json");
+      response.getWriter().println("{}");
+      return;
+    }
+
+    LocalDate first;
+    LocalDate last;
+    Granularity granularity;
+    try {
+      first = fromParameter == null ? bigfootSightings.getFirstDate() : parseStart(fromParameter);
+      last = toParameter == null
+          ? bigfootSightings.getLastDate()
+          : parseEnd(toParameter).minusDays(1);
+      granularity =
+          granularityParameter == null ? Granularity.YEAR : Granularity.parse(granularityParameter);
+    } catch (DateTimeException | IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "Expected from and to as yyyy, yyyy-MM or yyyy-MM-dd and granularity=year|month|week");
+      return;
+    }
+
+    // Buckets outside the data would all be zero, and an open-ended range
+    // could otherwise ask for millions of them.
+    if (first.isBefore(bigfootSightings.getFirstDate())) {
+      first = bigfootSightings.getFirstDate();
+    }
+    if (last.isAfter(bigfootSightings.getLastDate())) {
+      last = bigfootSightings.getLastDate();
+    }
+
     response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(bigfootSightings);
-    response.getWriter().println(json);
+    if (first.isAfter(last)) {
+      response.getWriter().println("{}");
+      return;
+    }
+    writeRollup(response.getWriter(), first, last, granularity);
+  }
+
+  /**
+   * Writes the sightings from {@code first} to {@code last}, both inclusive,
+   * as one JSON property per bucket. The first and last buckets only count the
+   * days inside the range.
+   */
+  private void writeRollup(Writer out, LocalDate first, LocalDate last, Granularity granularity)
+      throws IOException {
+    LocalDate end = last.plusDays(1);
+
+    JsonWriter writer = new JsonWriter(out);
+    writer.beginObject();
+    for (LocalDate bucket = granularity.truncate(first); bucket.isBefore(end);
+        bucket = granularity.next(bucket)) {
+      LocalDate start = bucket.isBefore(first) ? first : bucket;
+      LocalDate next = granularity.next(bucket);
+      writer.name(granularity.label(bucket))
+          .value(bigfootSightings.count(start, next.isAfter(end) ? end : next));
+    }
+    writer.endObject();
+    writer.flush();
+  }
+
+  /** Returns the first day of a year, month or day written as yyyy, yyyy-MM or yyyy-MM-dd. */
+  private static LocalDate parseStart(String value) {
+    value = value.trim();
+    switch (value.length()) {
+      case 4:
+        return Year.parse(value).atDay(1);
+      case 7:
+        return YearMonth.parse(value).atDay(1);
+      default:
+        return LocalDate.parse(value);
+    }
+  }
+
+  /** Returns the day after a year, month or day written as yyyy, yyyy-MM or yyyy-MM-dd. */
+  private static LocalDate parseEnd(String value) {
+    value = value.trim();
+    switch (value.length()) {
+      case 4:
+        return Year.parse(value).atDay(1).plusYears(1);
+      case 7:
+        return YearMonth.parse(value).atDay(1).plusMonths(1);
+      default:
+        return LocalDate.parse(value).plusDays(1);
+    }
   }
 }
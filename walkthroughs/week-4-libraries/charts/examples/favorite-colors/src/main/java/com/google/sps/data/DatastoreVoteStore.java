@@ -0,0 +1,113 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link VoteStore} that keeps one entity per key, out of a fixed set of
+ * keys. A batch of deltas is applied with a multi-get and a multi-put inside
+ * cross-group transactions, one for every 25 keys. Totals are read with a
+ * multi-get of the whole set, which unlike a query is strongly consistent,
+ * so they never lag behind a flush that just committed.
+ */
+public final class DatastoreVoteStore implements VoteStore {
+  /** Most entity groups a single cross-group transaction may touch. */
+  private static final int MAX_KEYS_PER_TRANSACTION = 25;
+
+  private final DatastoreService datastore;
+  private final String kind;
+  private final List<Key> allKeys = new ArrayList<>();
+
+  /** Creates a store for votes on {@code names}, kept as entities of {@code kind}. */
+  public DatastoreVoteStore(String kind, Collection<String> names) {
+    this(DatastoreServiceFactory.getDatastoreService(), kind, names);
+  }
+
+  public DatastoreVoteStore(DatastoreService datastore, String kind, Collection<String> names) {
+    this.datastore = datastore;
+    this.kind = kind;
+    for (String name : names) {
+      allKeys.add(KeyFactory.createKey(kind, name));
+    }
+  }
+
+  @Override
+  public void add(Map<String, Long> deltas, Consumer<Set<String>> committed) {
+    List<String> names = new ArrayList<>(deltas.keySet());
+
+    for (int start = 0; start < names.size(); start += MAX_KEYS_PER_TRANSACTION) {
+      int end = Math.min(start + MAX_KEYS_PER_TRANSACTION, names.size());
+      Set<String> chunk = new HashSet<>(names.subList(start, end));
+      List<Key> keys = new ArrayList<>();
+      for (String name : chunk) {
+        keys.add(KeyFactory.createKey(kind, name));
+      }
+
+      addInTransaction(keys, deltas);
+      committed.accept(chunk);
+    }
+  }
+
+  private void addInTransaction(List<Key> keys, Map<String, Long> deltas) {
+    Transaction txn = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      Map<Key, Entity> stored = datastore.get(txn, keys);
+
+      List<Entity> updated = new ArrayList<>();
+      for (Key key : keys) {
+        Entity entity = stored.get(key);
+        long votes = entity == null ? 0 : (long) entity.getProperty("votes");
+
+        if (entity == null) {
+          entity = new Entity(key);
+        }
+        entity.setUnindexedProperty("votes", votes + deltas.get(key.getName()));
+        updated.add(entity);
+      }
+
+      datastore.put(txn, updated);
+      txn.commit();
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+  }
+
+  @Override
+  public Map<String, Long> totals() {
+    Map<String, Long> totals = new HashMap<>();
+    for (Entity entity : datastore.get(allKeys).values()) {
+      totals.put(entity.getKey().getName(), (long) entity.getProperty("votes"));
+    }
+
+    return totals;
+  }
+}
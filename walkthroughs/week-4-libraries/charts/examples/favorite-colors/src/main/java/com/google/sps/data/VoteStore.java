@@ -0,0 +1,37 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/** Durable storage behind a {@link VoteTally}. Implementations must be thread-safe. */
+public interface VoteStore {
+  /**
+   * Adds each delta to the stored votes of its key. A store may commit the
+   * deltas in several parts; {@code committed} is called with the keys of
+   * each part as soon as it is durable, so if a later part fails the caller
+   * knows which deltas not to add again.
+   */
+  void add(Map<String, Long> deltas, Consumer<Set<String>> committed);
+
+  /**
+   * Returns the stored votes of every key, including votes flushed by other
+   * instances. The totals include every {@link #add} that has returned, so
+   * they never go backwards after a flush.
+   */
+  Map<String, Long> totals();
+}
@@ -0,0 +1,161 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Vote counts that many threads can update at once. Each key has its own
+ * {@link LongAdder}, so votes never lock, and the votes gathered since the
+ * last flush are written behind to a {@link VoteStore} as one batch at most
+ * once per flush interval.
+ *
+ * <p>The flush runs on whichever voting thread first notices the interval
+ * has passed, rather than on a timer. Other threads never wait for it.
+ */
+public final class VoteTally {
+  private static final Logger logger = Logger.getLogger(VoteTally.class.getName());
+
+  private final VoteStore store;
+  private final long flushIntervalMillis;
+
+  private final ConcurrentMap<String, LongAdder> votes = new ConcurrentHashMap<>();
+
+  private final Lock flushLock = new ReentrantLock();
+  private final AtomicLong nextFlushMillis = new AtomicLong();
+
+  /** Replaced as a whole, so readers always see a matching pair of maps. */
+  private volatile Snapshot snapshot = new Snapshot(new HashMap<>(), new HashMap<>());
+
+  public VoteTally(VoteStore store, long flushIntervalMillis) {
+    this.store = store;
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  /** Adds one vote for {@code key}, flushing to the store if the interval has passed. */
+  public void vote(String key) {
+    votes.computeIfAbsent(key, k -> new LongAdder()).increment();
+
+    long now = System.currentTimeMillis();
+    long nextFlush = nextFlushMillis.get();
+    if (now >= nextFlush && nextFlushMillis.compareAndSet(nextFlush, now + flushIntervalMillis)) {
+      tryFlush();
+    }
+  }
+
+  /**
+   * Returns the votes known to this instance, sorted by key: the stored totals
+   * as of the last flush, plus the votes made here since then.
+   */
+  public Map<String, Long> totals() {
+    Snapshot current = snapshot;
+
+    Map<String, Long> totals = new TreeMap<>(current.storedTotals);
+    votes.forEach((key, adder) -> {
+      long unflushed = adder.sum() - current.flushed.getOrDefault(key, 0L);
+      if (unflushed > 0) {
+        totals.merge(key, unflushed, Long::sum);
+      }
+    });
+
+    return totals;
+  }
+
+  /** Writes pending votes to the store, waiting for any flush already running. */
+  public void flush() {
+    flushLock.lock();
+    try {
+      flushPending();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void tryFlush() {
+    if (!flushLock.tryLock()) {
+      return;
+    }
+
+    try {
+      flushPending();
+    } catch (RuntimeException e) {
+      // The request that happened to flush shouldn't fail for it; the next flush tries again.
+      logger.log(Level.WARNING, "Could not flush the votes", e);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Must hold {@code flushLock}. Adders are never reset; only the amount
+   * already flushed moves forward, so a vote racing the flush is picked up by
+   * the next one instead of being lost. It moves forward for each part of
+   * the batch as the store commits it, so if the store fails, only the votes
+   * it didn't commit stay pending, and failing to read the totals back can't
+   * make the next flush add votes again.
+   */
+  private void flushPending() {
+    Snapshot current = snapshot;
+    Map<String, Long> seen = new HashMap<>();
+    Map<String, Long> deltas = new HashMap<>();
+
+    votes.forEach((key, adder) -> {
+      long sum = adder.sum();
+      long delta = sum - current.flushed.getOrDefault(key, 0L);
+
+      seen.put(key, sum);
+      if (delta > 0) {
+        deltas.put(key, delta);
+      }
+    });
+
+    if (!deltas.isEmpty()) {
+      Map<String, Long> flushed = new HashMap<>(current.flushed);
+      // Until the totals are read back, count what this instance just added.
+      Map<String, Long> storedTotals = new HashMap<>(current.storedTotals);
+      store.add(deltas, keys -> {
+        for (String key : keys) {
+          flushed.put(key, seen.get(key));
+          storedTotals.merge(key, deltas.get(key), Long::sum);
+        }
+        snapshot = new Snapshot(new HashMap<>(flushed), new HashMap<>(storedTotals));
+      });
+    }
+
+    snapshot = new Snapshot(snapshot.flushed, store.totals());
+  }
+
+  private static final class Snapshot {
+    /** Sum of each adder already written to the store. */
+    final Map<String, Long> flushed;
+    /** Totals read back from the store right after that write. */
+    final Map<String, Long> storedTotals;
+
+    Snapshot(Map<String, Long> flushed, Map<String, Long> storedTotals) {
+      this.flushed = flushed;
+      this.storedTotals = storedTotals;
+    }
+  }
+}
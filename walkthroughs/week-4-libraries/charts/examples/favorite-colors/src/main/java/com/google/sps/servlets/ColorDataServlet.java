@@ -15,10 +15,13 @@
 package com.google.sps.servlets;
 
 import com.google.gson.Gson;
+import com.google.sps.data.DatastoreVoteStore;
+import com.google.sps.data.VoteTally;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -28,22 +31,69 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/color-data")
 public class ColorDataServlet extends HttpServlet {
 
-  private Map<String, Integer> colorVotes = new HashMap<>();
+  private static final long FLUSH_INTERVAL_MILLIS = 5000;
+
+  /**
+   * The colors offered in index.html. Votes for anything else are rejected,
+   * so clients can't grow the tally, the stored entities and the JSON without
+   * bound.
+   */
+  private static final Set<String> COLORS =
+      new HashSet<>(Arrays.asList("Red", "Orange", "Yellow", "Green", "Blue", "Violet"));
+
+  /** The chart JSON is rebuilt at most this often, however many votes come in. */
+  private static final long JSON_MAX_AGE_MILLIS = 1000;
+
+  private VoteTally colorVotes;
+
+  private final Gson gson = new Gson();
+  private volatile String colorVotesJson;
+  private final AtomicLong nextJsonMillis = new AtomicLong();
+
+  @Override
+  public void init() {
+    colorVotes = new VoteTally(new DatastoreVoteStore("ColorVotes", COLORS), FLUSH_INTERVAL_MILLIS);
+    // Loads the totals stored before this instance started.
+    colorVotes.flush();
+  }
+
+  @Override
+  public void destroy() {
+    colorVotes.flush();
+  }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(colorVotes);
-    response.getWriter().println(json);
+    response.getWriter().println(getColorVotesJson());
   }
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String color = request.getParameter("color");
-    int currentVotes = colorVotes.containsKey(color) ? colorVotes.get(color) : 0;
-    colorVotes.put(color, currentVotes + 1);
+    if (color == null || !COLORS.contains(color)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "color must be one of " + COLORS);
+      return;
+    }
+
+    colorVotes.vote(color);
 
     response.sendRedirect("/index.html");
   }
+
+  /**
+   * Returns the cached JSON of the vote totals. Only the thread that finds it
+   * expired rebuilds it; everyone else keeps serving the previous one.
+   */
+  private String getColorVotesJson() {
+    long now = System.currentTimeMillis();
+    long nextJson = nextJsonMillis.get();
+
+    if (colorVotesJson == null
+        || (now >= nextJson && nextJsonMillis.compareAndSet(nextJson, now + JSON_MAX_AGE_MILLIS))) {
+      colorVotesJson = gson.toJson(colorVotes.totals());
+    }
+
+    return colorVotesJson;
+  }
 }
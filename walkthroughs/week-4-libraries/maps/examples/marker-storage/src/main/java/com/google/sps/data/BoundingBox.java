@@ -0,0 +1,91 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * A lat/lng rectangle. {@code west} may be greater than {@code east} when the
+ * box crosses the antimeridian.
+ */
+public final class BoundingBox {
+  private final double south;
+  private final double west;
+  private final double north;
+  private final double east;
+
+  public BoundingBox(double south, double west, double north, double east) {
+    if (south > north) {
+      throw new IllegalArgumentException("south must not be greater than north");
+    }
+
+    this.south = south;
+    this.west = west;
+    this.north = north;
+    this.east = east;
+  }
+
+  /**
+   * Parses "south,west,north,east", the format of the Maps JavaScript API's
+   * {@code LatLngBounds.toUrlValue()}.
+   */
+  public static BoundingBox parse(String value) {
+    String[] parts = value.split(",");
+    if (parts.length != 4) {
+      throw new IllegalArgumentException("bbox must be \"south,west,north,east\"");
+    }
+
+    return new BoundingBox(
+        Double.parseDouble(parts[0]),
+        Double.parseDouble(parts[1]),
+        Double.parseDouble(parts[2]),
+        Double.parseDouble(parts[3]));
+  }
+
+  public double getSouth() {
+    return south;
+  }
+
+  public double getWest() {
+    return west;
+  }
+
+  public double getNorth() {
+    return north;
+  }
+
+  public double getEast() {
+    return east;
+  }
+
+  public boolean crossesAntimeridian() {
+    return west > east;
+  }
+
+  /** Returns the width of the box in degrees of longitude. */
+  public double getLngSpan() {
+    return crossesAntimeridian() ? 360 - west + east : east - west;
+  }
+
+  public double getLatSpan() {
+    return north - south;
+  }
+
+  public boolean contains(double lat, double lng) {
+    if (lat < south || lat > north) {
+      return false;
+    }
+
+    return crossesAntimeridian() ? lng >= west || lng <= east : lng >= west && lng <= east;
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes locations as geohashes: strings where every character narrows the
+ * cell down further, so all the points in a cell share a prefix. Storing the
+ * geohash as an indexed property lets Datastore find the points in a cell with
+ * a single range query.
+ */
+public final class Geohash {
+
+  private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+  /** About 5 meters, which is more than a map marker needs. */
+  public static final int MAX_PRECISION = 9;
+
+  private Geohash() {}
+
+  /** Returns the geohash of the cell holding (lat, lng) with {@code precision} characters. */
+  public static String encode(double lat, double lng, int precision) {
+    return encodeCell(
+        column(lng, lngBits(precision)), row(lat, latBits(precision)), precision);
+  }
+
+  /**
+   * Returns geohash prefixes whose cells together cover {@code box}, using the
+   * longest prefixes that need no more than {@code maxCells} of them. Returns
+   * a single empty prefix if even one-character cells would take too many.
+   */
+  public static List<String> cover(BoundingBox box, int maxCells) {
+    List<String> best = new ArrayList<>();
+    best.add("");
+
+    for (int precision = 1; precision <= MAX_PRECISION; precision++) {
+      List<String> cells = cover(box, precision, maxCells);
+      if (cells == null) {
+        break;
+      }
+      best = cells;
+    }
+    return best;
+  }
+
+  /** Returns the cells of this precision covering {@code box}, or null if there are too many. */
+  private static List<String> cover(BoundingBox box, int precision, int maxCells) {
+    List<String> cells = new ArrayList<>();
+    boolean fits;
+    if (box.crossesAntimeridian()) {
+      fits = addCells(cells, box.getSouth(), box.getWest(), box.getNorth(), 180, precision,
+              maxCells)
+          && addCells(cells, box.getSouth(), -180, box.getNorth(), box.getEast(), precision,
+              maxCells);
+    } else {
+      fits = addCells(cells, box.getSouth(), box.getWest(), box.getNorth(), box.getEast(),
+          precision, maxCells);
+    }
+    return fits ? cells : null;
+  }
+
+  private static boolean addCells(List<String> cells, double south, double west, double north,
+      double east, int precision, int maxCells) {
+    int lngBits = lngBits(precision);
+    int latBits = latBits(precision);
+    int firstColumn = column(west, lngBits);
+    int lastColumn = column(east, lngBits);
+    int firstRow = row(south, latBits);
+    int lastRow = row(north, latBits);
+
+    long count = (long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+    if (cells.size() + count > maxCells) {
+      return false;
+    }
+
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      for (int row = firstRow; row <= lastRow; row++) {
+        cells.add(encodeCell(column, row, precision));
+      }
+    }
+    return true;
+  }
+
+  /** Interleaves the column and row bits, longitude first, five bits per character. */
+  private static String encodeCell(int column, int row, int precision) {
+    int lngBit = lngBits(precision) - 1;
+    int latBit = latBits(precision) - 1;
+    char[] hash = new char[precision];
+
+    boolean isLng = true;
+    for (int i = 0; i < precision; i++) {
+      int value = 0;
+      for (int bit = 0; bit < 5; bit++) {
+        int next = isLng ? (column >> lngBit--) & 1 : (row >> latBit--) & 1;
+        value = (value << 1) | next;
+        isLng = !isLng;
+      }
+      hash[i] = BASE32[value];
+    }
+    return new String(hash);
+  }
+
+  private static int lngBits(int precision) {
+    return (5 * precision + 1) / 2;
+  }
+
+  private static int latBits(int precision) {
+    return 5 * precision / 2;
+  }
+
+  private static int column(double lng, int bits) {
+    return cellIndex((lng + 180) / 360, bits);
+  }
+
+  private static int row(double lat, int bits) {
+    return cellIndex((lat + 90) / 180, bits);
+  }
+
+  /** Returns which of the {@code 2^bits} equal slices of [0, 1] {@code fraction} falls in. */
+  private static int cellIndex(double fraction, int bits) {
+    int cells = 1 << bits;
+    int index = (int) Math.floor(fraction * cells);
+    return Math.max(0, Math.min(cells - 1, index));
+  }
+}
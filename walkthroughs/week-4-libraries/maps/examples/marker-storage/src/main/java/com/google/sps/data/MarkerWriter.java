@@ -0,0 +1,158 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreFailureException;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Stores entities in Datastore, merging the ones stored at about the same time
+ * into a single multi-entity put.
+ *
+ * <p>The first request to arrive opens a batch. If no put is running, it puts
+ * the batch straight away, so a request on its own never waits. Otherwise it
+ * waits for the running put to finish, and everything stored in the meantime
+ * joins its batch. It then puts the whole batch and wakes the others up.
+ * Every caller returns only once its own entity is stored, so a marker is
+ * never lost if the instance shuts down, and the puts all happen on request
+ * threads.
+ */
+public final class MarkerWriter {
+
+  /** Datastore's limit on entities per put. */
+  private static final int MAX_BATCH_SIZE = 500;
+
+  private final DatastoreService datastore;
+
+  private final Object lock = new Object();
+
+  /** The batch still accepting entities, or null. Guarded by {@link #lock}. */
+  private Batch openBatch;
+
+  /** The batch opened last, which may still be putting. Guarded by {@link #lock}. */
+  private Batch lastBatch;
+
+  public MarkerWriter(DatastoreService datastore) {
+    this.datastore = datastore;
+  }
+
+  /**
+   * Stores {@code entity} together with whatever else is stored while the
+   * previous put runs. Blocks until it is written, and throws if its batch
+   * failed.
+   */
+  public void store(Entity entity) {
+    Batch batch;
+    boolean isLeader = false;
+    synchronized (lock) {
+      if (openBatch == null) {
+        openBatch = new Batch(lastBatch == null ? null : lastBatch.committed);
+        lastBatch = openBatch;
+        isLeader = true;
+      }
+      batch = openBatch;
+      batch.entities.add(entity);
+
+      if (batch.entities.size() == MAX_BATCH_SIZE) {
+        openBatch = null;
+      }
+    }
+
+    if (isLeader) {
+      commit(batch);
+    } else {
+      batch.awaitCommit();
+    }
+  }
+
+  private void commit(Batch batch) {
+    boolean interrupted = false;
+    if (batch.previousCommitted != null) {
+      interrupted = awaitUninterruptibly(batch.previousCommitted);
+    }
+
+    // Once the batch is closed nobody else touches its list.
+    synchronized (lock) {
+      if (openBatch == batch) {
+        openBatch = null;
+      }
+    }
+
+    // The next batch waits on this one, so it must be finished whatever happens.
+    RuntimeException failure = new DatastoreFailureException("The put did not complete");
+    try {
+      datastore.put(batch.entities);
+      failure = null;
+    } catch (RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      batch.finish(failure);
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Waits for {@code latch} even if interrupted, and returns whether it was. */
+  private static boolean awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        return interrupted;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+  }
+
+  private static final class Batch {
+    final List<Entity> entities = new ArrayList<>();
+
+    /**
+     * Released once the batch opened before this one is put, or null if there
+     * was none. Only the latch is kept, so batches don't chain together.
+     */
+    final CountDownLatch previousCommitted;
+
+    final CountDownLatch committed = new CountDownLatch(1);
+    private volatile RuntimeException failure;
+
+    Batch(CountDownLatch previousCommitted) {
+      this.previousCommitted = previousCommitted;
+    }
+
+    void finish(RuntimeException failure) {
+      this.failure = failure;
+      committed.countDown();
+    }
+
+    /** Waits for the leader to put the batch, even if interrupted, since it can't be undone. */
+    void awaitCommit() {
+      if (awaitUninterruptibly(committed)) {
+        Thread.currentThread().interrupt();
+      }
+
+      if (failure != null) {
+        throw new DatastoreFailureException("Storing a batch of markers failed", failure);
+      }
+    }
+  }
+}
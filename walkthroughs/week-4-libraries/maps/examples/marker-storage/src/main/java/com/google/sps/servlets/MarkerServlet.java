@@ -14,16 +14,29 @@
 
 package com.google.sps.servlets;
 
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Query.CompositeFilterOperator;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.sps.data.BoundingBox;
+import com.google.sps.data.Geohash;
 import com.google.sps.data.Marker;
+import com.google.sps.data.MarkerWriter;
 import com.google.gson.Gson;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -31,16 +44,66 @@ import javax.servlet.http.HttpServletResponse;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Whitelist;
 
-/** Handles fetching and saving markers data. */
+/**
+ * Handles fetching and saving markers data.
+ *
+ * <p>Each marker is stored with the geohash of its location as its only
+ * indexed property. A {@code bbox=south,west,north,east} parameter turns into
+ * a few geohash prefix range queries, so reads only touch markers near the
+ * viewport however many markers there are in total.
+ *
+ * <p>Markers stored before the geohash was added have none, so no bbox query
+ * finds them. {@link #init} backfills them, a page at a time, and records its
+ * progress so that an instance stopped partway through leaves the rest for
+ * the next one.
+ */
 @WebServlet("/markers")
 public class MarkerServlet extends HttpServlet {
 
-  /** Responds with a JSON array containing marker data. */
+  /** Upper limit on the geohash queries run for one viewport. */
+  private static final int MAX_CELLS = 16;
+
+  private static final int MAX_MARKERS = 1000;
+
+  /** Markers read and written per step of the geohash backfill. */
+  private static final int BACKFILL_PAGE_SIZE = 500;
+
+  /** Records how far the geohash backfill got. */
+  private static final Key BACKFILL_KEY = KeyFactory.createKey("MarkerBackfill", "geohash");
+
+  private final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+  private final MarkerWriter markerWriter = new MarkerWriter(datastore);
+
+  @Override
+  public void init() {
+    backfillGeohashes();
+  }
+
+  /**
+   * Responds with a JSON array containing marker data, limited to the
+   * {@code bbox} parameter if there is one.
+   */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String bboxParameter = request.getParameter("bbox");
+
+    Collection<Marker> markers;
+    if (bboxParameter == null) {
+      markers = getMarkers();
+    } else {
+      BoundingBox box;
+      try {
+        box = BoundingBox.parse(bboxParameter);
+      } catch (IllegalArgumentException e) {
+        response.sendError(
+            HttpServletResponse.SC_BAD_REQUEST, "Expected bbox=south,west,north,east");
+        return;
+      }
+      markers = getMarkers(box);
+    }
+
     response.setContentType("application/json");
 
-    Collection<Marker> markers = getMarkers();
     Gson gson = new Gson();
     String json = gson.toJson(markers);
 
@@ -58,33 +121,118 @@ public class MarkerServlet extends HttpServlet {
     storeMarker(marker);
   }
 
-  /** Fetches markers from Datastore. */
+  /** Fetches up to {@link #MAX_MARKERS} markers from Datastore. */
   private Collection<Marker> getMarkers() {
     Collection<Marker> markers = new ArrayList<>();
 
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
     Query query = new Query("Marker");
-    PreparedQuery results = datastore.prepare(query);
+    for (Entity entity : datastore.prepare(query).asIterable(
+        FetchOptions.Builder.withLimit(MAX_MARKERS).chunkSize(200))) {
+      markers.add(toMarker(entity));
+    }
+    return markers;
+  }
 
-    for (Entity entity : results.asIterable()) {
-      double lat = (double) entity.getProperty("lat");
-      double lng = (double) entity.getProperty("lng");
-      String content = (String) entity.getProperty("content");
+  /** Fetches up to {@link #MAX_MARKERS} markers inside {@code box} from Datastore. */
+  private Collection<Marker> getMarkers(BoundingBox box) {
+    // Start every query before reading any, so they run in parallel.
+    List<Iterator<Entity>> results = new ArrayList<>();
+    for (String prefix : Geohash.cover(box, MAX_CELLS)) {
+      Query query = new Query("Marker");
+      if (!prefix.isEmpty()) {
+        // '{' sorts right after 'z', the last geohash character.
+        query.setFilter(CompositeFilterOperator.and(
+            new FilterPredicate("geohash", FilterOperator.GREATER_THAN_OR_EQUAL, prefix),
+            new FilterPredicate("geohash", FilterOperator.LESS_THAN, prefix + "{")));
+      }
+      results.add(datastore.prepare(query).asIterator(
+          FetchOptions.Builder.withLimit(MAX_MARKERS).chunkSize(200)));
+    }
 
-      Marker marker = new Marker(lat, lng, content);
-      markers.add(marker);
+    // The cells stick out past the box, so drop what is outside it.
+    Collection<Marker> markers = new ArrayList<>();
+    for (Iterator<Entity> result : results) {
+      while (result.hasNext() && markers.size() < MAX_MARKERS) {
+        Marker marker = toMarker(result.next());
+        if (box.contains(marker.getLat(), marker.getLng())) {
+          markers.add(marker);
+        }
+      }
     }
     return markers;
   }
 
-  /** Stores a marker in Datastore. */
+  private static Marker toMarker(Entity entity) {
+    double lat = (double) entity.getProperty("lat");
+    double lng = (double) entity.getProperty("lng");
+    String content = (String) entity.getProperty("content");
+
+    return new Marker(lat, lng, content);
+  }
+
+  /**
+   * Stores a marker in Datastore. Markers posted while another put is running
+   * are stored together with one put.
+   */
   public void storeMarker(Marker marker) {
     Entity markerEntity = new Entity("Marker");
-    markerEntity.setProperty("lat", marker.getLat());
-    markerEntity.setProperty("lng", marker.getLng());
-    markerEntity.setProperty("content", marker.getContent());
+    setProperties(markerEntity, marker);
+
+    markerWriter.store(markerEntity);
+  }
+
+  private static void setProperties(Entity entity, Marker marker) {
+    entity.setUnindexedProperty("lat", marker.getLat());
+    entity.setUnindexedProperty("lng", marker.getLng());
+    entity.setUnindexedProperty("content", marker.getContent());
+    entity.setProperty(
+        "geohash", Geohash.encode(marker.getLat(), marker.getLng(), Geohash.MAX_PRECISION));
+  }
+
+  /**
+   * Adds a geohash to every stored marker that lacks one, resuming from the
+   * cursor saved by the last instance to run it. Once it has gone through
+   * every marker it is marked done, and later instances only read that.
+   */
+  private void backfillGeohashes() {
+    Entity progress;
+    try {
+      progress = datastore.get(BACKFILL_KEY);
+    } catch (EntityNotFoundException e) {
+      progress = new Entity(BACKFILL_KEY);
+    }
+    if (Boolean.TRUE.equals(progress.getProperty("done"))) {
+      return;
+    }
 
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    datastore.put(markerEntity);
+    String savedCursor = (String) progress.getProperty("cursor");
+    Cursor cursor = savedCursor == null ? null : Cursor.fromWebSafeString(savedCursor);
+    while (true) {
+      FetchOptions options = FetchOptions.Builder.withLimit(BACKFILL_PAGE_SIZE);
+      if (cursor != null) {
+        options.startCursor(cursor);
+      }
+      QueryResultList<Entity> page = datastore.prepare(new Query("Marker"))
+          .asQueryResultList(options);
+
+      List<Entity> updated = new ArrayList<>();
+      for (Entity entity : page) {
+        if (!entity.hasProperty("geohash")) {
+          setProperties(entity, toMarker(entity));
+          updated.add(entity);
+        }
+      }
+      datastore.put(updated);
+
+      cursor = page.getCursor();
+      if (page.size() < BACKFILL_PAGE_SIZE) {
+        progress.setUnindexedProperty("done", true);
+        progress.removeProperty("cursor");
+        datastore.put(progress);
+        return;
+      }
+      progress.setUnindexedProperty("cursor", cursor.toWebSafeString());
+      datastore.put(progress);
+    }
   }
 }
@@ -0,0 +1,57 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/** A group of {@code count} UFO sightings, placed at their centroid. */
+public final class Cluster {
+  private final double lat;
+  private final double lng;
+  private final int count;
+
+  public Cluster(double lat, double lng, int count) {
+    this.lat = lat;
+    this.lng = lng;
+    this.count = count;
+  }
+
+  public double getLat() {
+    return lat;
+  }
+
+  public double getLng() {
+    return lng;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /** Accumulates sightings into a cluster. */
+  static final class Builder {
+    private double latSum;
+    private double lngSum;
+    private int count;
+
+    void add(double latSum, double lngSum, int count) {
+      this.latSum += latSum;
+      this.lngSum += lngSum;
+      this.count += count;
+    }
+
+    Cluster build() {
+      return new Cluster(latSum / count, lngSum / count, count);
+    }
+  }
+}
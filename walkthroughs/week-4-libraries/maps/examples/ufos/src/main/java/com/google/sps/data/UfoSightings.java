@@ -0,0 +1,46 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * UFO sightings stored as two parallel columns of primitive doubles, so a
+ * sighting costs 16 bytes instead of an object with its own header.
+ */
+public final class UfoSightings {
+  private final double[] lats;
+  private final double[] lngs;
+
+  /** Wraps the given columns, which must have the same length. */
+  public UfoSightings(double[] lats, double[] lngs) {
+    if (lats.length != lngs.length) {
+      throw new IllegalArgumentException("lat and lng columns must have the same length");
+    }
+
+    this.lats = lats;
+    this.lngs = lngs;
+  }
+
+  public int size() {
+    return lats.length;
+  }
+
+  public double getLat(int index) {
+    return lats[index];
+  }
+
+  public double getLng(int index) {
+    return lngs[index];
+  }
+}
@@ -0,0 +1,196 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index over {@link UfoSightings}: a fixed grid of half-degree cells.
+ * Sightings are reordered so each cell's points are contiguous, and each cell
+ * also keeps the count and coordinate sums of its points, so zoomed-out
+ * views can be clustered from cell totals without visiting every point.
+ */
+public final class UfoSightingsIndex {
+  private static final double CELL_DEGREES = 0.5;
+  private static final int ROWS = (int) (180 / CELL_DEGREES);
+  private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+
+  /** Coordinates ordered by cell. */
+  private final double[] lats;
+  private final double[] lngs;
+
+  /** Points of cell {@code c} are at indexes {@code cellStarts[c]} to {@code cellStarts[c + 1]}. */
+  private final int[] cellStarts;
+  private final double[] cellLatSums;
+  private final double[] cellLngSums;
+
+  private UfoSightingsIndex(double[] lats, double[] lngs, int[] cellStarts) {
+    this.lats = lats;
+    this.lngs = lngs;
+    this.cellStarts = cellStarts;
+    this.cellLatSums = new double[ROWS * COLUMNS];
+    this.cellLngSums = new double[ROWS * COLUMNS];
+
+    for (int cell = 0; cell < ROWS * COLUMNS; cell++) {
+      for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+        cellLatSums[cell] += lats[i];
+        cellLngSums[cell] += lngs[i];
+      }
+    }
+  }
+
+  /** Builds the index with a counting sort of the sightings by cell. */
+  public static UfoSightingsIndex build(UfoSightings sightings) {
+    int size = sightings.size();
+    int[] cellStarts = new int[ROWS * COLUMNS + 1];
+
+    int[] cells = new int[size];
+    for (int i = 0; i < size; i++) {
+      cells[i] = cellOf(sightings.getLat(i), sightings.getLng(i));
+      cellStarts[cells[i] + 1]++;
+    }
+    for (int cell = 0; cell < ROWS * COLUMNS; cell++) {
+      cellStarts[cell + 1] += cellStarts[cell];
+    }
+
+    double[] lats = new double[size];
+    double[] lngs = new double[size];
+    int[] nextSlot = cellStarts.clone();
+    for (int i = 0; i < size; i++) {
+      int slot = nextSlot[cells[i]]++;
+      lats[slot] = sightings.getLat(i);
+      lngs[slot] = sightings.getLng(i);
+    }
+
+    return new UfoSightingsIndex(lats, lngs, cellStarts);
+  }
+
+  /**
+   * Returns an upper bound on the number of sightings in {@code box}, counting
+   * whole cells without looking at any point.
+   */
+  public int countUpperBound(BoundingBox box) {
+    int[] count = new int[1];
+    forEachCell(box, cell -> count[0] += cellStarts[cell + 1] - cellStarts[cell]);
+
+    return count[0];
+  }
+
+  /** Returns every sighting in {@code box}, each as a cluster of one. */
+  public List<Cluster> findPoints(BoundingBox box) {
+    List<Cluster> points = new ArrayList<>();
+    forEachCell(box, cell -> {
+      for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+        if (box.contains(lats[i], lngs[i])) {
+          points.add(new Cluster(lats[i], lngs[i], 1));
+        }
+      }
+    });
+
+    return points;
+  }
+
+  /**
+   * Groups the sightings in {@code box} into square clusters {@code clusterDegrees}
+   * wide, each placed at the centroid of its sightings. Clusters at least as
+   * large as a cell are built from cell totals, so the cost depends on the
+   * size of the box rather than the number of sightings in it.
+   */
+  public List<Cluster> findClusters(BoundingBox box, double clusterDegrees) {
+    Map<Long, Cluster.Builder> clusters = new HashMap<>();
+
+    if (clusterDegrees >= CELL_DEGREES) {
+      forEachCell(box, cell -> {
+        int count = cellStarts[cell + 1] - cellStarts[cell];
+        if (count > 0) {
+          // Keyed by the cell's centroid, so a cell is never split between clusters.
+          double lat = cellLatSums[cell] / count;
+          double lng = cellLngSums[cell] / count;
+          long key = clusterKey(lat, lng, clusterDegrees);
+          clusters.computeIfAbsent(key, k -> new Cluster.Builder())
+              .add(cellLatSums[cell], cellLngSums[cell], count);
+        }
+      });
+    } else {
+      forEachCell(box, cell -> {
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+          if (box.contains(lats[i], lngs[i])) {
+            long key = clusterKey(lats[i], lngs[i], clusterDegrees);
+            clusters.computeIfAbsent(key, k -> new Cluster.Builder()).add(lats[i], lngs[i], 1);
+          }
+        }
+      });
+    }
+
+    List<Cluster> result = new ArrayList<>();
+    for (Cluster.Builder builder : clusters.values()) {
+      result.add(builder.build());
+    }
+
+    return result;
+  }
+
+  private interface CellVisitor {
+    void visit(int cell);
+  }
+
+  /** Visits every cell that overlaps {@code box}, splitting boxes that cross the antimeridian. */
+  private static void forEachCell(BoundingBox box, CellVisitor visitor) {
+    int firstRow = rowOf(box.getSouth());
+    int lastRow = rowOf(box.getNorth());
+
+    if (box.crossesAntimeridian()) {
+      forEachCell(firstRow, lastRow, columnOf(box.getWest()), COLUMNS - 1, visitor);
+      forEachCell(firstRow, lastRow, 0, columnOf(box.getEast()), visitor);
+    } else {
+      forEachCell(firstRow, lastRow, columnOf(box.getWest()), columnOf(box.getEast()), visitor);
+    }
+  }
+
+  private static void forEachCell(
+      int firstRow, int lastRow, int firstColumn, int lastColumn, CellVisitor visitor) {
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        visitor.visit(row * COLUMNS + column);
+      }
+    }
+  }
+
+  private static int cellOf(double lat, double lng) {
+    return rowOf(lat) * COLUMNS + columnOf(lng);
+  }
+
+  private static int rowOf(double lat) {
+    return clamp((int) Math.floor((lat + 90) / CELL_DEGREES), ROWS);
+  }
+
+  private static int columnOf(double lng) {
+    return clamp((int) Math.floor((lng + 180) / CELL_DEGREES), COLUMNS);
+  }
+
+  private static int clamp(int value, int size) {
+    return Math.max(0, Math.min(size - 1, value));
+  }
+
+  private static long clusterKey(double lat, double lng, double clusterDegrees) {
+    long row = (long) Math.floor((lat + 90) / clusterDegrees);
+    long column = (long) Math.floor((lng + 180) / clusterDegrees);
+
+    return row << 32 | column;
+  }
+}
@@ -0,0 +1,231 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/**
+ * Parses "lat,lng" lines straight from bytes into {@link UfoSightings}
+ * columns, without creating a String or an array of cells per line. Large
+ * inputs are split at line boundaries and the chunks parsed in parallel.
+ */
+public final class UfoSightingsParser {
+  /** Inputs smaller than this are parsed on the calling thread. */
+  private static final int PARALLEL_THRESHOLD_BYTES = 1 << 20;
+
+  /** Largest number of digits a long mantissa can hold that is still exact as a double. */
+  private static final int MAX_FAST_PATH_DIGITS = 15;
+
+  /** Powers of ten that are exact as doubles. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private UfoSightingsParser() {}
+
+  /** Reads the whole stream and parses it, in parallel if it is large. */
+  public static UfoSightings parse(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[64 * 1024];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      bytes.write(buffer, 0, read);
+    }
+
+    byte[] data = bytes.toByteArray();
+    int parallelism = data.length < PARALLEL_THRESHOLD_BYTES
+        ? 1
+        : Runtime.getRuntime().availableProcessors();
+
+    return parse(data, parallelism);
+  }
+
+  /** Parses {@code data} split into up to {@code parallelism} chunks. */
+  public static UfoSightings parse(byte[] data, int parallelism) {
+    int[] boundaries = findChunkBoundaries(data, Math.max(1, parallelism));
+    int chunkCount = boundaries.length - 1;
+
+    UfoSightings[] chunks = IntStream.range(0, chunkCount)
+        .parallel()
+        .mapToObj(i -> parseRange(data, boundaries[i], boundaries[i + 1]))
+        .toArray(UfoSightings[]::new);
+
+    return concat(chunks);
+  }
+
+  /** Splits {@code data} into roughly equal ranges that each start at the beginning of a line. */
+  private static int[] findChunkBoundaries(byte[] data, int parallelism) {
+    int[] boundaries = new int[parallelism + 1];
+    int count = 1;
+
+    for (int i = 1; i < parallelism; i++) {
+      // At least 1, so there is a byte before it to check even on tiny inputs.
+      int boundary = Math.max(1, (int) ((long) data.length * i / parallelism));
+      while (boundary < data.length && data[boundary - 1] != '\n') {
+        boundary++;
+      }
+
+      if (boundary > boundaries[count - 1] && boundary < data.length) {
+        boundaries[count++] = boundary;
+      }
+    }
+    boundaries[count++] = data.length;
+
+    int[] trimmed = new int[count];
+    System.arraycopy(boundaries, 0, trimmed, 0, count);
+
+    return trimmed;
+  }
+
+  private static UfoSightings parseRange(byte[] data, int start, int end) {
+    // Counting lines first lets the columns be allocated once, at their final size.
+    int maxRows = 1;
+    for (int i = start; i < end; i++) {
+      if (data[i] == '\n') {
+        maxRows++;
+      }
+    }
+
+    double[] lats = new double[maxRows];
+    double[] lngs = new double[maxRows];
+    int rows = 0;
+
+    int position = start;
+    while (position < end) {
+      int lineEnd = position;
+      while (lineEnd < end && data[lineEnd] != '\n') {
+        lineEnd++;
+      }
+
+      int contentEnd = lineEnd;
+      if (contentEnd > position && data[contentEnd - 1] == '\r') {
+        contentEnd--;
+      }
+
+      if (contentEnd > position) {
+        int comma = position;
+        while (comma < contentEnd && data[comma] != ',') {
+          comma++;
+        }
+        if (comma == contentEnd) {
+          String line = new String(data, position, contentEnd - position, StandardCharsets.UTF_8);
+          throw new NumberFormatException("Expected \"lat,lng\" but got: " + line);
+        }
+
+        // Any further cells after the lng are ignored, like the Scanner version did.
+        int lngEnd = comma + 1;
+        while (lngEnd < contentEnd && data[lngEnd] != ',') {
+          lngEnd++;
+        }
+
+        lats[rows] = parseDouble(data, position, comma);
+        lngs[rows] = parseDouble(data, comma + 1, lngEnd);
+        rows++;
+      }
+
+      position = lineEnd + 1;
+    }
+
+    if (rows < maxRows) {
+      double[] trimmedLats = new double[rows];
+      double[] trimmedLngs = new double[rows];
+      System.arraycopy(lats, 0, trimmedLats, 0, rows);
+      System.arraycopy(lngs, 0, trimmedLngs, 0, rows);
+
+      return new UfoSightings(trimmedLats, trimmedLngs);
+    }
+
+    return new UfoSightings(lats, lngs);
+  }
+
+  /**
+   * Parses a plain decimal like "-122.7144313". When the digits fit in a long
+   * that is exact as a double, dividing by an exact power of ten gives the
+   * same correctly rounded result as {@link Double#parseDouble}; anything
+   * else (exponents, very long numbers) falls back to it.
+   */
+  static double parseDouble(byte[] data, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (data[i] == '-' || data[i] == '+')) {
+      negative = data[i] == '-';
+      i++;
+    }
+
+    long mantissa = 0;
+    boolean seenDigit = false;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean seenPoint = false;
+    boolean fastPath = i < end;
+
+    for (; i < end && fastPath; i++) {
+      byte b = data[i];
+      if (b >= '0' && b <= '9') {
+        seenDigit = true;
+        // Leading zeros don't take up precision.
+        if (mantissa != 0 || b != '0') {
+          digits++;
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        if (seenPoint) {
+          fractionDigits++;
+        }
+      } else if (b == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        fastPath = false;
+      }
+    }
+
+    boolean exact = digits <= MAX_FAST_PATH_DIGITS && fractionDigits < POWERS_OF_TEN.length;
+    if (!fastPath || !seenDigit || !exact) {
+      return Double.parseDouble(new String(data, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    double value = mantissa / POWERS_OF_TEN[fractionDigits];
+
+    return negative ? -value : value;
+  }
+
+  private static UfoSightings concat(UfoSightings[] chunks) {
+    if (chunks.length == 1) {
+      return chunks[0];
+    }
+
+    int size = 0;
+    for (UfoSightings chunk : chunks) {
+      size += chunk.size();
+    }
+
+    double[] lats = new double[size];
+    double[] lngs = new double[size];
+    int offset = 0;
+    for (UfoSightings chunk : chunks) {
+      for (int i = 0; i < chunk.size(); i++) {
+        lats[offset + i] = chunk.getLat(i);
+        lngs[offset + i] = chunk.getLng(i);
+      }
+      offset += chunk.size();
+    }
+
+    return new UfoSightings(lats, lngs);
+  }
+}
@@ -14,45 +14,144 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.data.UfoSighting;
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.BoundingBox;
+import com.google.sps.data.Cluster;
+import com.google.sps.data.PrecompressedJson;
+import com.google.sps.data.UfoSightings;
+import com.google.sps.data.UfoSightingsIndex;
+import com.google.sps.data.UfoSightingsParser;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}] */
+/**
+ * Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}]
+ *
+ * <p>With {@code bbox=south,west,north,east} and {@code zoom} parameters, returns
+ * only what is in that viewport instead, e.g.
+ * [{"lat": 38.4404675, "lng": -122.7144313, "count": 12}]. Below
+ * {@link #CLUSTER_MAX_ZOOM}, or when the viewport holds too many sightings,
+ * nearby sightings are merged into clusters so the response stays small.
+ */
 @WebServlet("/ufo-data")
 public class UfoDataServlet extends HttpServlet {
 
-  private Collection<UfoSighting> ufoSightings;
+  /** From this zoom level on, individual sightings are returned if there aren't too many. */
+  private static final int CLUSTER_MAX_ZOOM = 10;
+  private static final int MAX_ZOOM = 22;
+  private static final int MAX_POINTS = 2000;
 
-  @Override
-  public void init() {
-    ufoSightings = new ArrayList<>();
+  /** Clusters are roughly this many pixels wide on screen. */
+  private static final int CLUSTER_PIXELS = 64;
+  private static final int TILE_PIXELS = 256;
+
+  /** Caps the clusters across a viewport, whatever zoom level the client claims. */
+  private static final int MAX_CLUSTERS_ACROSS = 32;
+
+  private static final String DATA_PATH = "/WEB-INF/ufo-data.csv";
 
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/ufo-data.csv"));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
+  private UfoSightingsIndex ufoSightingsIndex;
 
-      double lat = Double.parseDouble(cells[0]);
-      double lng = Double.parseDouble(cells[1]);
+  /** The response without a bbox, which is the same every time. */
+  private PrecompressedJson allSightingsJson;
 
-      ufoSightings.add(new UfoSighting(lat, lng));
+  @Override
+  public void init() throws ServletException {
+    UfoSightings ufoSightings;
+    try (InputStream input = getServletContext().getResourceAsStream(DATA_PATH)) {
+      ufoSightings = UfoSightingsParser.parse(input);
+      long lastModified =
+          getServletContext().getResource(DATA_PATH).openConnection().getLastModified();
+      allSightingsJson =
+          PrecompressedJson.of(serializeAllSightings(ufoSightings), lastModified);
+    } catch (IOException e) {
+      throw new ServletException("Could not read the UFO sightings", e);
     }
-    scanner.close();
+
+    ufoSightingsIndex = UfoSightingsIndex.build(ufoSightings);
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String bboxParameter = request.getParameter("bbox");
+    if (bboxParameter == null) {
+      allSightingsJson.write(request, response);
+      return;
+    }
+
+    BoundingBox box;
+    int zoom;
+    try {
+      box = BoundingBox.parse(bboxParameter);
+      zoom = Integer.parseInt(request.getParameter("zoom"));
+    } catch (IllegalArgumentException e) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "Expected bbox=south,west,north,east&zoom=N");
+      return;
+    }
+    if (zoom < 0 || zoom > MAX_ZOOM) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "zoom must be between 0 and " + MAX_ZOOM);
+      return;
+    }
+
+    List<Cluster> clusters;
+    if (zoom >= CLUSTER_MAX_ZOOM && ufoSightingsIndex.countUpperBound(box) <= MAX_POINTS) {
+      clusters = ufoSightingsIndex.findPoints(box);
+    } else {
+      clusters = ufoSightingsIndex.findClusters(box, getClusterDegrees(box, zoom));
+    }
+
     response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(ufoSightings);
-    response.getWriter().println(json);
+
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginArray();
+    for (Cluster cluster : clusters) {
+      writer.beginObject();
+      writer.name("lat").value(cluster.getLat());
+      writer.name("lng").value(cluster.getLng());
+      writer.name("count").value(cluster.getCount());
+      writer.endObject();
+    }
+    writer.endArray();
+    writer.flush();
+  }
+
+  private static byte[] serializeAllSightings(UfoSightings ufoSightings) throws IOException {
+    ByteArrayOutputStream json = new ByteArrayOutputStream(ufoSightings.size() * 40);
+
+    JsonWriter writer = new JsonWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8));
+    writer.beginArray();
+    for (int i = 0; i < ufoSightings.size(); i++) {
+      writer.beginObject();
+      writer.name("lat").value(ufoSightings.getLat(i));
+      writer.name("lng").value(ufoSightings.getLng(i));
+      writer.endObject();
+    }
+    writer.endArray();
+    writer.close();
+
+    return json.toByteArray();
+  }
+
+  /**
+   * Returns the width of a cluster in degrees: {@link #CLUSTER_PIXELS} at this
+   * zoom level, widened if needed so the box holds at most
+   * {@link #MAX_CLUSTERS_ACROSS} clusters in each direction.
+   */
+  private static double getClusterDegrees(BoundingBox box, int zoom) {
+    double degreesPerPixel = 360.0 / (TILE_PIXELS * Math.pow(2, zoom));
+    double widestSpan = Math.max(box.getLatSpan(), box.getLngSpan());
+
+    return Math.max(CLUSTER_PIXELS * degreesPerPixel, widestSpan / MAX_CLUSTERS_ACROSS);
   }
 }
@@ -12,16 +12,35 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
-/** Fetches UFO sightings data from the server and displays it in a map. */
+/** Markers currently on the map, removed whenever the viewport changes. */
+let markers = [];
+
+/** Creates a map that shows the UFO sightings in view, refreshed as it moves. */
 function createUfoSightingsMap() {
-  fetch('/ufo-data').then(response => response.json()).then((ufoSightings) => {
-    const map = new google.maps.Map(
-        document.getElementById('map'),
-        {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
+  const map = new google.maps.Map(
+      document.getElementById('map'),
+      {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
+
+  map.addListener('idle', () => showUfoSightingsInView(map));
+}
+
+/**
+ * Fetches the sightings, or clusters of sightings, inside the map's current
+ * viewport from the server and replaces the markers with them.
+ */
+function showUfoSightingsInView(map) {
+  const params = new URLSearchParams({
+    bbox: map.getBounds().toUrlValue(),
+    zoom: map.getZoom()
+  });
+
+  fetch(`/ufo-data?${params}`).then(response => response.json()).then((clusters) => {
+    markers.forEach((marker) => marker.setMap(null));
 
-    ufoSightings.forEach((ufoSighting) => {
-      new google.maps.Marker(
-          {position: {lat: ufoSighting.lat, lng: ufoSighting.lng}, map: map});
-    });
+    markers = clusters.map((cluster) => new google.maps.Marker({
+      position: {lat: cluster.lat, lng: cluster.lng},
+      label: cluster.count > 1 ? String(cluster.count) : null,
+      map: map
+    }));
   });
 }
@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link UfoSightingsParser}. */
+@RunWith(JUnit4.class)
+public final class UfoSightingsParserTest {
+
+  @Test
+  public void parsesLines() throws IOException {
+    String csv = "47.6062095,-122.3320708\r\n"
+        + "\n"
+        + "-33.8688,151.2093,ignored cell\n"
+        + "+1e2,0.5\n"
+        + "0,-0";
+
+    UfoSightings sightings = UfoSightingsParser.parse(
+        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+    Assert.assertEquals(4, sightings.size());
+    Assert.assertEquals(47.6062095, sightings.getLat(0), 0);
+    Assert.assertEquals(-122.3320708, sightings.getLng(0), 0);
+    Assert.assertEquals(-33.8688, sightings.getLat(1), 0);
+    Assert.assertEquals(151.2093, sightings.getLng(1), 0);
+    Assert.assertEquals(100, sightings.getLat(2), 0);
+    Assert.assertEquals(0.5, sightings.getLng(2), 0);
+    Assert.assertEquals(0, sightings.getLat(3), 0);
+  }
+
+  @Test
+  public void parsesInputShorterThanItsChunkCount() {
+    UfoSightings sightings = UfoSightingsParser.parse("1,2\n".getBytes(StandardCharsets.UTF_8), 8);
+
+    Assert.assertEquals(1, sightings.size());
+    Assert.assertEquals(1, sightings.getLat(0), 0);
+    Assert.assertEquals(2, sightings.getLng(0), 0);
+    Assert.assertEquals(0, UfoSightingsParser.parse(new byte[0], 8).size());
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void rejectsLineWithoutComma() {
+    UfoSightingsParser.parse("1.0,2.0\n3.0\n".getBytes(StandardCharsets.UTF_8), 1);
+  }
+
+  @Test
+  public void parseDoubleMatchesDoubleParseDouble() {
+    Random random = new Random(36);
+    for (int i = 0; i < 100_000; i++) {
+      String format = "%." + random.nextInt(18) + "f";
+      String text = String.format(Locale.ROOT, format, (random.nextDouble() - 0.5) * 360);
+      byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+
+      Assert.assertEquals(text, Double.parseDouble(text),
+          UfoSightingsParser.parseDouble(bytes, 0, bytes.length), 0);
+    }
+  }
+
+  @Test
+  public void parallelChunksMatchOneChunk() {
+    byte[] csv = randomCsv(50_000);
+
+    UfoSightings sequential = UfoSightingsParser.parse(csv, 1);
+    UfoSightings parallel = UfoSightingsParser.parse(csv, 7);
+
+    Assert.assertEquals(50_000, sequential.size());
+    assertSameSightings(sequential, parallel);
+  }
+
+  @Test
+  public void matchesSplitAndParseDouble() {
+    byte[] csv = randomCsv(10_000);
+    String[] lines = new String(csv, StandardCharsets.UTF_8).split("\n");
+
+    UfoSightings sightings = UfoSightingsParser.parse(csv, 1);
+
+    Assert.assertEquals(lines.length, sightings.size());
+    for (int i = 0; i < lines.length; i++) {
+      String[] cells = lines[i].split(",");
+      Assert.assertEquals(Double.parseDouble(cells[0]), sightings.getLat(i), 0);
+      Assert.assertEquals(Double.parseDouble(cells[1]), sightings.getLng(i), 0);
+    }
+  }
+
+  private static byte[] randomCsv(int rows) {
+    Random random = new Random(rows);
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < rows; i++) {
+      csv.append(String.format(Locale.ROOT, "%.7f,%.7f\n",
+          random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+    }
+    return csv.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void assertSameSightings(UfoSightings expected, UfoSightings actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.getLat(i), actual.getLat(i), 0);
+      Assert.assertEquals(expected.getLng(i), actual.getLng(i), 0);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A JSON response body that never changes while the server runs. The body and
+ * its gzip and deflate encodings are built once, so serving a request only
+ * copies bytes. Clients get an {@code ETag} and, if the data's modification
+ * time is known, a {@code Last-Modified} header, and can revalidate with
+ * {@code If-None-Match} or {@code If-Modified-Since}.
+ *
+ * <p>This file is shared by the ufos and bigfoot-sightings examples, whose
+ * poms add this directory as a source root.
+ */
+public final class PrecompressedJson {
+
+  private final byte[] identity;
+  private final byte[] gzip;
+  private final byte[] deflate;
+
+  /** Based on a hash of the content, so every instance hands out the same one. */
+  private final String etagBase;
+  private final long lastModifiedMillis;
+
+  private PrecompressedJson(byte[] identity, byte[] gzip, byte[] deflate, String etagBase,
+      long lastModifiedMillis) {
+    this.identity = identity;
+    this.gzip = gzip;
+    this.deflate = deflate;
+    this.etagBase = etagBase;
+    this.lastModifiedMillis = lastModifiedMillis;
+  }
+
+  /**
+   * Compresses {@code json}, which must be UTF-8, and hashes it for the ETag.
+   * {@code lastModifiedMillis} is when the data it was built from last
+   * changed, or 0 if that isn't known.
+   */
+  public static PrecompressedJson of(byte[] json, long lastModifiedMillis) throws IOException {
+    ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(json.length / 4);
+    try (OutputStream out = new GZIPOutputStream(gzipBytes)) {
+      out.write(json);
+    }
+
+    ByteArrayOutputStream deflateBytes = new ByteArrayOutputStream(json.length / 4);
+    try (OutputStream out = new DeflaterOutputStream(deflateBytes)) {
+      out.write(json);
+    }
+
+    // HTTP dates only have whole seconds.
+    long lastModified = lastModifiedMillis / 1000 * 1000;
+
+    return new PrecompressedJson(
+        json, gzipBytes.toByteArray(), deflateBytes.toByteArray(), hash(json), lastModified);
+  }
+
+  /** Writes the body in the best encoding the client accepts, or a 304 if it is up to date. */
+  public void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String encoding = chooseEncoding(request.getHeader("Accept-Encoding"));
+    String etag = getEtag(encoding);
+
+    response.setHeader("Vary", "Accept-Encoding");
+    response.setHeader("ETag", etag);
+    if (lastModifiedMillis > 0) {
+      response.setDateHeader("Last-Modified", lastModifiedMillis);
+    }
+
+    if (isNotModified(request)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] body = identity;
+    if (encoding.equals("gzip")) {
+      body = gzip;
+    } else if (encoding.equals("deflate")) {
+      body = deflate;
+    }
+    if (body != identity) {
+      response.setHeader("Content-Encoding", encoding);
+    }
+
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  private boolean isNotModified(HttpServletRequest request) {
+    // If-None-Match wins over If-Modified-Since when both are sent.
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      for (String tag : ifNoneMatch.split(",")) {
+        tag = tag.trim();
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+        // Every encoding holds the same content, so any of them counts as a match.
+        if (tag.equals("*") || tag.equals(getEtag("identity")) || tag.equals(getEtag("gzip"))
+            || tag.equals(getEtag("deflate"))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (lastModifiedMillis <= 0) {
+      return false;
+    }
+    long ifModifiedSince;
+    try {
+      ifModifiedSince = request.getDateHeader("If-Modified-Since");
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    return ifModifiedSince != -1 && ifModifiedSince >= lastModifiedMillis;
+  }
+
+  /**
+   * Picks gzip, deflate or identity from an Accept-Encoding header, by quality
+   * and then in that order. Also skips an encoding that would not save bytes.
+   */
+  private String chooseEncoding(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return "identity";
+    }
+
+    double gzipQuality = 0;
+    double deflateQuality = 0;
+    double identityQuality = -1;
+    double wildcardQuality = -1;
+    for (String part : acceptEncoding.split(",")) {
+      String[] fields = part.split(";");
+      String coding = fields[0].trim().toLowerCase(Locale.ROOT);
+      double quality = getQuality(fields);
+
+      if (coding.equals("gzip") || coding.equals("x-gzip")) {
+        gzipQuality = quality;
+      } else if (coding.equals("deflate")) {
+        deflateQuality = quality;
+      } else if (coding.equals("identity")) {
+        identityQuality = quality;
+      } else if (coding.equals("*")) {
+        wildcardQuality = quality;
+      }
+    }
+    // Identity is acceptable unless it is turned off, and stays the fallback
+    // even then because there is no 406 worth sending for a JSON file.
+    if (identityQuality < 0) {
+      identityQuality = wildcardQuality == 0 ? 0 : Double.MIN_VALUE;
+    }
+
+    if (gzipQuality > 0 && gzipQuality >= deflateQuality && gzipQuality >= identityQuality
+        && gzip.length < identity.length) {
+      return "gzip";
+    }
+    if (deflateQuality > 0 && deflateQuality >= identityQuality
+        && deflate.length < identity.length) {
+      return "deflate";
+    }
+    return "identity";
+  }
+
+  private static double getQuality(String[] fields) {
+    for (int i = 1; i < fields.length; i++) {
+      String parameter = fields[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  private String getEtag(String encoding) {
+    if (encoding.equals("identity")) {
+      return "\"" + etagBase + "\"";
+    }
+    return "\"" + etagBase + "-" + encoding + "\"";
+  }
+
+  private static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is always available", e);
+    }
+  }
+}